@@ -0,0 +1,63 @@
+package COVIDSweeper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark { // Reveals have their own class, they need the board covered back up every call.
+    // rows x cols : mines. 16x16:128 is what the space-bar reset asks for.
+    @Param({"16x16:35", "16x16:128", "100x100:1500", "100x100:5000", "1000x1000:150000", "4000x4000:2400000"})
+    public String shape;
+
+    @Param({"square", "torus", "hex"})
+    public String topology;
+
+    private Topology cells; // Shared by every board made here.
+    private int rows;
+    private int cols;
+    private int mines;
+    private long seed = 1;
+    private Board board; // A ready made board for the click benchmarks.
+    private int mine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = shape.split("[x:]");
+        rows = Integer.parseInt(parts[0]);
+        cols = Integer.parseInt(parts[1]);
+        mines = Integer.parseInt(parts[2]);
+        cells = new Topology(Topology.shape(topology), rows, cols);
+        board = new Board(cells);
+        board.placeMines(mines, 42);
+        board.countAllMines();
+        mine = board.nextMine(0);
+    }
+
+    @Benchmark
+    public Board populate() { // What Game.populate does before anything is drawn.
+        Board fresh = new Board(cells);
+        fresh.placeMines(mines, seed++);
+        fresh.countAllMines();
+        return fresh;
+    }
+
+    @Benchmark
+    public Board countMines() {
+        board.countAllMines();
+        return board;
+    }
+
+    @Benchmark
+    public boolean victoryCheck() { // A right click on a mine followed by the win check, then undone.
+        board.toggleFlag(mine);
+        boolean won = board.allMinesFlagged();
+        board.toggleFlag(mine);
+        return won;
+    }
+}
@@ -0,0 +1,42 @@
+package COVIDSweeper;
+
+import java.lang.management.ManagementFactory;
+
+// Fails (exit status 1) if the click path allocates. Runs ClickBenchmark's clicks and counts what this thread allocated.
+// mvn -B -Pbench package, then: java -cp target/benchmarks.jar COVIDSweeper.ClickAllocationCheck
+public class ClickAllocationCheck {
+    static final int WARMUP = 200_000; // Clicks before counting, so the JIT has compiled the path.
+    static final int CLICKS = 1_000_000;
+    static final double MAX_BYTES = 1; // Per click. It's 0 in practice, this leaves room for the odd JVM internal.
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean failed = false;
+        for (String shape : new String[] {"16x16:35", "1000x1000:150000"}) {
+            ClickBenchmark clicks = new ClickBenchmark();
+            clicks.shape = shape;
+            clicks.setUp();
+            failed |= !check(threads, shape + " left click", clicks::leftClick);
+            failed |= !check(threads, shape + " right click", clicks::rightClick);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(com.sun.management.ThreadMXBean threads, String name, Runnable click) {
+        for (int i = 0; i < WARMUP; i++) {
+            click.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CLICKS; i++) {
+            click.run();
+        }
+        double bytes = (threads.getThreadAllocatedBytes(thread) - before) / (double) CLICKS;
+        boolean passed = bytes <= MAX_BYTES;
+        System.out.printf("%s %-32s %.4f B/click%n", passed ? "OK  " : "FAIL", name, bytes);
+        return passed;
+    }
+}
@@ -0,0 +1,84 @@
+package COVIDSweeper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// What a click costs once the game's going, from the rules through to the view and labels being told.
+// Run with -prof gc: gc.alloc.rate.norm should sit at about 0 B/op. Painting is left to Swing and isn't in here.
+// ClickAllocationCheck runs these same clicks and fails if they allocate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ClickBenchmark {
+    @Param({"16x16:35", "1000x1000:150000"})
+    public String shape;
+
+    private Session session;
+    private BoardView view;
+    private Readout score;
+    private Readout health;
+    private int[] numbered; // Covered safe cells with a count, a click on one uncovers just that cell.
+    private int next = 0;
+    private int mine;
+    private static final Metrics.Histogram CLICK_TIME = Metrics.histogram("click.time_us");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = shape.split("[x:]");
+        int rows = Integer.parseInt(parts[0]);
+        int cols = Integer.parseInt(parts[1]);
+        int mines = Integer.parseInt(parts[2]);
+        session = new Session(rows, cols, mines, 42);
+        session.leftClick(rows / 2 * cols + cols / 2); // Puts the mines down.
+        Board board = session.board;
+        view = new BoardView(board);
+        score = new Readout(false);
+        score.setFont(Theme.SCORE_FONT);
+        health = new Readout(true);
+        health.setFont(Theme.HEALTH_FONT);
+        int count = 0;
+        numbered = new int[board.size];
+        for (int i = 0; i < board.size; i++) {
+            if (!board.isRevealed(i) && !board.isMine(i) && board.getCount(i) > 0) {
+                numbered[count++] = i;
+            }
+        }
+        numbered = Arrays.copyOf(numbered, count);
+        mine = board.nextMine(0);
+    }
+
+    @Benchmark
+    public int leftClick() { // Same steps as Game.leftClick for a cell that isn't a mine, then covered back up.
+        long began = System.nanoTime();
+        int cell = numbered[next];
+        next = next + 1 == numbered.length ? 0 : next + 1;
+        int uncovered = session.leftClick(cell);
+        Board board = session.board;
+        for (int n = 0; n < uncovered; n++) {
+            view.changed(board.revealedCell(n));
+        }
+        view.flushChanges();
+        score.setNumber("Score: ", session.score);
+        health.setText(Theme.chanceText(session.health, session.lives));
+        CLICK_TIME.since(began);
+        board.revealed[cell >>> 6] &= ~(1L << cell);
+        board.revealed_safe--;
+        return uncovered;
+    }
+
+    @Benchmark
+    public boolean rightClick() { // A flag down on a mine and back up again.
+        long began = System.nanoTime();
+        boolean changed = session.rightClick(mine) & session.rightClick(mine);
+        view.changed(mine);
+        view.flushChanges();
+        score.setNumber("Score: ", session.score);
+        CLICK_TIME.since(began);
+        return changed;
+    }
+}
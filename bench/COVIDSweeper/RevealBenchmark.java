@@ -0,0 +1,53 @@
+package COVIDSweeper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// A first click on a blank cell, cascade and all. Every call needs a fully covered board, so there's a reset before
+// each one. That's noise next to the small boards' reveals, trust the big boards' numbers more.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevealBenchmark {
+    @Param({"16x16:35", "16x16:128", "100x100:1500", "100x100:5000", "1000x1000:150000", "4000x4000:2400000"})
+    public String shape;
+
+    @Param({"square", "torus", "hex"})
+    public String topology;
+
+    private Board board;
+    private int blank; // A zero count cell to click on.
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = shape.split("[x:]");
+        board = new Board(new Topology(Topology.shape(topology), Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+        board.placeMines(Integer.parseInt(parts[2]), 42);
+        board.countAllMines();
+        blank = -1;
+        for (int i = 0; i < board.size && blank < 0; i++) {
+            if (!board.isMine(i) && board.getCount(i) == 0) {
+                blank = i;
+            }
+        }
+        if (blank < 0) { // Dense boards may not have one, a numbered cell still reveals.
+            blank = board.nextMine(0) == 0 ? 1 : 0;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cover() {
+        Arrays.fill(board.revealed, 0);
+        board.revealed_safe = 0;
+    }
+
+    @Benchmark
+    public int reveal() {
+        return board.reveal(blank);
+    }
+}
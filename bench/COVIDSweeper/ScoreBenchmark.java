@@ -0,0 +1,81 @@
+package COVIDSweeper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int entries; // Scores already in scores.txt.
+
+    private Path folder;
+    private ScoreJournal journal;
+    private ScoreIndex index; // Already caught up, like ScoreWindow's after the first window of a run.
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("scores");
+        ArrayList<Score> scores = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            scores.add(new Score("Player" + (i % 1000), entries - i));
+        }
+        new FileHandler().writingScoreFile(folder.resolve("scores.txt").toString(), scores);
+        journal = new ScoreJournal(folder.resolve("scores.txt").toString(), folder.resolve("scores.journal").toString());
+        index = new ScoreIndex();
+        index.catchUp(journal);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.flush(10000);
+        try (var files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Score> readScores() throws IOException { // A full pass, only the top 5 kept.
+        Leaderboard leaderboard = new Leaderboard(ScoreWindow.TOP_SCORES);
+        journal.forEach(leaderboard::offer);
+        return leaderboard.top();
+    }
+
+    @Benchmark
+    public ScoreIndex indexScores() throws IOException { // What the first ScoreWindow of a run does.
+        ScoreIndex fresh = new ScoreIndex();
+        fresh.catchUp(journal);
+        return fresh;
+    }
+
+    @Benchmark
+    public int catchUp() throws IOException { // What every later ScoreWindow does, with nothing new to read.
+        index.catchUp(journal);
+        return index.size();
+    }
+
+    @Benchmark
+    public double standing() { // Rank, percentile, personal best and the top 5, once the index is there.
+        int score = next++ % (entries + 1);
+        ScoreIndex.Player player = index.player("Player" + (score % 1000));
+        return index.rank(score) + index.percentile(score) + index.between(score, score + 100)
+                + (player == null ? 0 : player.best) + index.top(ScoreWindow.TOP_SCORES).size();
+    }
+
+    @Benchmark
+    public boolean writeScore() { // One finished game, waiting until it's on disk.
+        journal.append(new Score("Bench", next++));
+        return journal.flush(10000);
+    }
+}
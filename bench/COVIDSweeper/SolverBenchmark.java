@@ -0,0 +1,54 @@
+package COVIDSweeper;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({"9x9:10", "16x16:40", "16x30:99", "100x100:1600"})
+    public String shape;
+
+    private int rows;
+    private int cols;
+    private int mines;
+    private long seed = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = shape.split("[x:]");
+        rows = Integer.parseInt(parts[0]);
+        cols = Integer.parseInt(parts[1]);
+        mines = Integer.parseInt(parts[2]);
+    }
+
+    @Benchmark
+    public int solveBoard() { // Boards per second: generate, open a blank cell, then play every proven move.
+        Board board = new Board(rows, cols);
+        board.placeMines(mines, seed++);
+        board.countAllMines();
+        int start = 0;
+        while (start < board.size && (board.isMine(start) || board.getCount(start) != 0)) {
+            start++;
+        }
+        if (start == board.size) {
+            return 0;
+        }
+        board.reveal(start);
+        Solver solver = new Solver(board);
+        while (solver.solve()) {
+            for (int i = solver.nextMine(0); i >= 0; i = solver.nextMine(i + 1)) {
+                board.toggleFlag(i);
+            }
+            for (int i = solver.nextSafe(0); i >= 0; i = solver.nextSafe(i + 1)) {
+                board.reveal(i);
+            }
+        }
+        return board.revealed_safe;
+    }
+}
@@ -1,616 +1,4811 @@
-package COVIDSweeper;
-
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
-import java.util.Scanner;
-
-class Coords implements Comparable<Coords> {
-    public int x;
-    public int y;
-
-    Coords(int x, int y) {
-        this.x = x;
-        this.y = y;
-    }
-
-    @Override
-    public int compareTo(Coords o) {
-        return Integer.compare(this.x + this.y, o.x + o.y);
-    }
-
-    @Override
-    public String toString() {
-        return "Coords{" + "x=" + x + ", y=" + y + '}';
-    }
-}
-
-class Score implements Comparable<Score> { //A quick score data structure.
-    String name;
-    int score;
-
-    Score (String name, int score) {
-        this.name = name;
-        this.score = score;
-    }
-
-    @Override
-    public int compareTo(Score o) {
-        if (this == o) {
-            return 0;
-        } else if (this.score == o.score) { //If they're the same score, compare the names.
-            return this.name.compareTo(o.name);
-        } else if (this.score > o.score) {
-            return 1;
-        } else {
-            return -1;
-        }
-    }
-}
-
-class FileHandler {
-    File file;
-    Scanner scanner;
-    FileWriter quil;
-
-    public ArrayList<String> readingStringiness(String filename) throws FileNotFoundException {
-        // Whatever uses FileHandler will have to account for I/O exceptions.
-        ArrayList<String> lines = new ArrayList<>();
-        file = new File(filename);
-        scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            lines.add(scanner.nextLine()); //Read into String Array.
-        }
-
-        return lines;
-    }
-
-    public void writingFile(String filename, String data) throws IOException {
-        file = new File(filename);
-        quil = new FileWriter(file);
-        quil.write(data + "\n"); //This one replaces the text file with a near-identical copy.
-        quil.close();
-    }
-
-    public void writingScoreFile(String filename, ArrayList<Score> data) throws IOException {
-        writingFile(filename, "Scores\n======");
-        file = new File(filename);
-        quil = new FileWriter(file, true);
-        for (Score i : data)
-            quil.write(i.name + "=" + i.score + "\n");
-        quil.close();
-    }
-}
-
-abstract class Square extends JPanel {
-    private boolean uncovered = false;
-    protected int type = 0; // 0 for Square, 1 for Cell, 2 for 'Bomb'
-    private boolean flagged = false;
-    private int surrounding_mines = 0;
-
-    JLabel Text;
-    String desired_text;
-    Coords relative_place;
-
-    Square(int row, int col) {
-        relative_place = new Coords(col, row);
-        desired_text = "";
-        setBackground(new Color(171, 175, 172));
-        setBorder(BorderFactory.createLineBorder(new Color(97, 110, 127)));
-        setPreferredSize(new Dimension(25, 25));
-        Text = new JLabel(desired_text);
-        add(Text);
-        setVisible(true);
-    }
-
-    public boolean isUncovered() {
-        return uncovered;
-    }
-
-    public boolean isFlagged() {
-        return flagged;
-    }
-
-    public boolean isSurrounded() {
-        return (surrounding_mines > 0);
-    }
-
-    public void changeColour(Color bg) {
-        setBackground(bg);
-    }
-    public void setSurroundingMines(int amount) {
-        surrounding_mines = amount;
-    }
-
-    public int getSurrounding_mines() {
-        return surrounding_mines;
-    }
-
-
-    public abstract void uncover();
-
-    public void setUncovered(boolean value) {
-        this.uncovered = value;
-    }
-
-    public int getType() {
-        return type;
-    }
-
-    public void toggleFlag() {
-        if(!isUncovered()) {
-            if (flagged) {
-                flagged = false;
-                setBackground(new Color(171, 175, 172));
-            } else {
-                flagged = true;
-                setBackground(new Color(236, 158, 158));
-
-            }
-        }
-    }
-
-}
-
-class Mine extends Square {
-    Mine(int row, int col) {
-        super(row, col);
-        this.type = 2;
-        this.desired_text = "\uD83D\uDCA3";
-    }
-
-    @Override
-    public void uncover() {
-        if (!this.isFlagged()) {
-            this.setUncovered(true);
-            Text.setText(desired_text);
-        }
-        setBackground(new Color(0xE39056));
-    }
-
-}
-
-class Cell extends Square {
-
-    Cell(int row, int col) {
-        super(row, col);
-        this.type = 1;
-        this.desired_text = String.valueOf(this.getSurrounding_mines());
-    }
-
-    @Override
-    public void uncover() {
-        setBackground(new Color(0xC2DEFF));
-        desired_text = String.valueOf(this.getSurrounding_mines());
-        if (this.getSurrounding_mines() == 0) {
-            this.desired_text = "";
-        }
-        if (!this.isFlagged()) {
-            this.setUncovered(true);
-            Text.setText(desired_text);
-        }
-
-    }
-}
-
-class Game extends JFrame {
-    private int MINES;
-    private int active_mines;
-    public int current_score = 0;
-    private ArrayList<Coords> mine_coordinates; // To easily know where all our mines are in each game.
-    private double health = 0; // Or lack thereof.
-    boolean game_running = false; //You can only interact with the minesweeper grid if you haven't lost/won.
-    boolean victory;
-    private boolean first_turn;
-
-    JPanel minesweeper_panel; // panel used to group together and treat the cells as one..
-    Square[][] minefield; // The array containing all of the individual cells.
-    JLabel score_label;
-    JLabel health_label;
-    ScoreWindow scoreboard;
-
-    public Game() {
-        // call initialise
-
-        initialise(16,16,35);
-
-
-        // key listener to respond to key events
-        addKeyListener(new KeyboardListener(this));
-
-
-        // standard configuration
-        setSize(new Dimension(500, 600));
-        getContentPane().setBackground(new Color(0x555555));
-        setTitle("1903148 - COVIDSweepr");
-        setResizable(true);
-        setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        setVisible(true);
-    }
-
-    void startScoreboard() {
-        String player_name = JOptionPane.showInputDialog("What is your name?");
-        if (player_name.length() < 1) {player_name = "Anonymous";} //Just in case they're too lazy to put in a name.
-        try {
-            this.scoreboard = new ScoreWindow(new Score(player_name, this.current_score), this.victory);
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
-        }
-    }
-
-    void initialise(int rows, int cols, int mines) {
-        MINES = mines; //Unchanging max mines
-        active_mines = MINES; //All mines still 'active' (not triggered)
-        current_score = 0;
-        health = 0;
-        first_turn = true;
-        // if there was a previous finished/unfinished game, reset to original state.
-        if(minesweeper_panel != null) {
-            this.remove(minesweeper_panel);
-            this.remove(score_label);
-            this.remove(health_label);
-            health_label = null;
-            minesweeper_panel = null;
-            score_label = null;
-        }
-
-        minesweeper_panel = new JPanel(new GridLayout(rows, cols));
-        minesweeper_panel.setBackground(new Color(0x555555));
-
-        minefield = new Square[rows][cols];
-
-        score_label = new JLabel("Score: " + current_score, JLabel.LEFT);
-        score_label.setForeground(Color.white);
-        score_label.setFont(new Font("Arial", Font.BOLD, 18));
-
-        health_label = new JLabel("Infection Chance: 0%", JLabel.RIGHT);
-        health_label.setFont(new Font("Arial", Font.ITALIC, 18));
-        health_label.setForeground(Color.orange);
-
-        populate(); //Put the bombs in, then place cells where bombs aren't.
-
-        for (int i = 0; i < minefield.length; i++) {
-            for (int j = 0; j < minefield[0].length; j++) {
-                minefield[i][j].setSurroundingMines(countMines(i, j));
-            }
-        }
-
-
-        // add panels to frame (via BorderLayout)
-        this.add(health_label, BorderLayout.NORTH);
-        this.add(minesweeper_panel, BorderLayout.CENTER);
-        this.add(score_label, BorderLayout.SOUTH);
-        game_running = true;
-    }
-
-    public void game_over(boolean victory) {
-        for (Coords i : mine_coordinates) {
-            minefield[i.y][i.x].uncover();
-            if (minefield[i.y][i.x].isFlagged()) { //If they got them all right.
-                minefield[i.y][i.x].changeColour(new Color(0x8BD758));
-            }
-        }
-        health_label.setText("You're back home...");
-        if (victory) {
-            System.out.println("PLAYER: Victory!");
-        }
-        game_running = false;
-    }
-
-    public void victory_check() {
-        int flagged_mines = 0;
-        for (Coords i : mine_coordinates) {
-            if (minefield[i.y][i.x].isFlagged() && !minefield[i.y][i.x].isUncovered()) { //Whatever mines were flagged and not triggered.
-                ++flagged_mines;
-            }
-        }
-        if (flagged_mines == active_mines) { //So long as the player has gotten all non-triggered mines, they can still win.
-            double percentage = (health / 6) * 100;
-            Random rand = new Random();
-            double chance = 100 * rand.nextDouble(); //If the random number is larger than whatever percentage you're at.
-            if (chance > percentage) {
-                victory = true;
-                game_over(true); //You aren't infected... this time.
-            } else {
-                victory = false;
-                game_over(false);
-            }
-        }
-    }
-
-    public void get_hurt() {
-        if (health >= 6) { //The player has 6+1 chances when they get hit by bombs
-            active_mines -= 1;
-            health_label.setText("Infection Chance: CERTAIN.");
-            health_label.setForeground(Color.red);
-            victory = false;
-            game_over(false); //The game is already over, and the player lost.
-        } else {
-            active_mines -=1;
-            health += 1;
-            health_label.setText("Infection Chance: " + health / 6 * 100 + "%"); // Chance of getting infected abstracted with this lives system.
-        }
-    }
-
-    public int countMines(int x, int y) {
-        int count = 0;
-        for(int i = -1; i <= 1; i++) {
-            if((x + i < 0) || (x + i >= minefield.length)) {
-                continue;
-            }
-            for(int j = -1; j <= 1; j++) {
-                if((y + j < 0) || (y + j >= minefield[0].length)) {
-                    continue;
-                }
-                if(minefield[x + i][y + j].getType() == 2) {
-                    count++;
-                }
-            }
-        }
-        return count;
-    }
-
-    public void populate() {
-        Random rand = new Random();
-        mine_coordinates = new ArrayList<>(); //Place the mines first
-        int i = 0;
-        while (i < MINES) {
-            int cols = rand.nextInt(minefield[0].length);
-            int rows = rand.nextInt(minefield.length);
-            if (minefield[rows][cols] == null) {
-                minefield[rows][cols] = new Mine(rows, cols);
-                minefield[rows][cols].addMouseListener(new MouseClickListener(this));
-                minesweeper_panel.add(minefield[rows][cols]);
-                mine_coordinates.add(new Coords(cols, rows));
-                i++;
-            }
-        }
-
-        for(int row = 0; row < minefield.length; row++) {
-            for(int col = 0; col < minefield[row].length; col++) {
-                if (minefield[row][col] == null) { //For whatever still isn't initialized we put a Cell
-                    minefield[row][col] = new Cell(row, col);
-                    // unique mouse listener per panel to determine which panel was clicked
-                    minefield[row][col].addMouseListener(new MouseClickListener(this));
-                }
-            }
-        }
-
-        for (Square[] squares : minefield) {
-            for (int y = 0; y < minefield[0].length; y++) {
-                minesweeper_panel.add(squares[y]);
-            }
-        }
-    }
-
-    public void reveal (int row, int col) { // Cascading reveals to make clicking blank spots reasonable.
-        minefield[col][row].uncover();
-        for(int i = -1; i <= 1; i++) {
-            if((col + i < 0) || (col + i >= minefield.length)) {
-                continue;
-            }
-            for(int j = -1; j <= 1; j++) {
-                if((row + j < 0) || (row + j >= minefield[0].length)) {
-                    continue;
-                }
-                if(minefield[col + i][row + j].getType() == 1 && !minefield[col + i][row + j].isFlagged() && !minefield[col + i][row + j].isSurrounded()) {
-                    minefield[col + i][row + j].uncover();
-                }
-                if (first_turn && minefield[col + i][row + j].getType() == 1) { //The player's first turn gets clairvoyance
-                    minefield[col + i][row + j].uncover();
-                }
-            }
-        }
-        first_turn = false;
-    }
-
-}
-
-class ScoreWindow extends JFrame {
-    Score latest_score;
-    FileHandler files;
-    ArrayList<Score> scores;
-    JLabel verdict;
-    JLabel latest_score_label;
-    JLabel score_list_label;
-
-    ScoreWindow(Score latest_score, boolean victory) throws IOException {
-        scores = new ArrayList<>();
-        scores.add(latest_score);
-        this.latest_score = latest_score;
-        setLayout(new GridLayout(4,1));
-        readScores();
-        sortScores();
-        writeScores();
-        initialize(victory);
-        setLayout(new FlowLayout());
-        setSize(new Dimension(500,600));
-        setResizable(false);
-        setTitle("1903148 - COVIDQuest - Results");
-        getContentPane().setBackground(new Color(0x555555));
-        setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        setVisible(true);
-    }
-
-    public void initialize(boolean victory) {
-        if (this.verdict != null) {
-            remove(verdict);
-            remove(latest_score_label);
-            remove(score_list_label);
-            verdict = null;
-            latest_score = null;
-            score_list_label = null;
-        }
-
-        if (victory) {
-            verdict = new JLabel("You're Safe.");
-            verdict.setForeground(Color.green);
-            verdict.setBackground(Color.WHITE);
-        } else {
-            verdict = new JLabel("You've contracted COVID-19");
-            verdict.setForeground(Color.red);
-            verdict.setBackground(new Color(0xE38948));
-        }
-        verdict.setFont(new Font("Helvetica", Font.BOLD, 32));
-        add(verdict);
-
-        latest_score_label = new JLabel(latest_score.name + ", you scored " + latest_score.score + " points total.");
-        latest_score_label.setFont(new Font("Arial", Font.ITALIC, 25));
-        latest_score_label.setBackground(new Color(0x898989));
-        latest_score_label.setForeground(new Color(0xFFFFFF));
-        add(latest_score_label);
-
-        score_list_label = new JLabel();
-        StringBuilder single_string = new StringBuilder();
-        single_string.append("<html>TOP 5 HIGHEST SCORES<br>"); //HTML tags for line breaks in JLabel.
-        try {
-            for (int i = 0; i < 5; ++i) {
-                single_string.append(i+1).append(". ").append(scores.get(i).name).append(" = ").append(scores.get(i).score).append(".<br>");
-            }
-        } catch (IndexOutOfBoundsException e) { //If we have less than five names.
-            single_string.append("...And no one else...");
-        }
-        single_string.append("</html>");
-        score_list_label.setText(single_string.toString());
-        score_list_label.setForeground(new Color(0xC6C6C6));
-        score_list_label.setFont(new Font("Arial", Font.BOLD, 25));
-        score_list_label.setHorizontalAlignment(JLabel.CENTER);
-        add(score_list_label);
-    }
-
-
-    public void readScores() throws IOException {
-        files = new FileHandler();
-        try {
-            ArrayList<String> list = files.readingStringiness("scores.txt");
-            for (int i = 0; i < list.size(); ++i) {
-                if (i > 1) {
-                    String[] split_entry = list.get(i).split("=");
-                    scores.add(new Score(split_entry[0], Integer.parseInt(split_entry[1].strip())));
-                }
-            }
-        } catch (FileNotFoundException e) {
-            files.writingFile("scores.txt", "Scores\n======\n" + latest_score.name + "=" + latest_score.score);
-        } catch (ArrayIndexOutOfBoundsException ignored) {
-        }
-    }
-
-    public void writeScores() throws IOException {
-        files = new FileHandler();
-        files.writingScoreFile("scores.txt", scores);
-    }
-
-    public void sortScores() { //Sorts scores into descending order.
-        scores.sort(Collections.reverseOrder());
-    }
-}
-
-class MouseClickListener implements MouseListener {
-
-    private final Game game; // game passed through to allow for game manipulation
-
-    public MouseClickListener(Game game) {
-        this.game = game;
-    }
-
-    @Override
-    public void mouseClicked(MouseEvent e) {
-        if (game.game_running) { //If the game is running, we use mouseClicked to reveal cells.
-            Square component = (Square) e.getComponent();
-            if (e.getButton() == 1) { //If LMB clicked.
-                if (!component.isUncovered() && !component.isFlagged()) {
-                    if (component.getType() == 2) { //If it's a bomb
-                        component.uncover();
-                        game.current_score -= 5;
-                        game.score_label.setText("Score: " + game.current_score);
-                        game.get_hurt();
-                    } else { // If it isn't (A cell).
-                        game.reveal(component.relative_place.x, component.relative_place.y); //Use the place of the cell in the array.
-                        game.current_score += 10;
-                        game.score_label.setText("Score: " + game.current_score);
-                    }
-                }
-                game.victory_check();
-            } else if (e.getButton() == 3) { //If RMB clicked
-                if (!component.isUncovered()) {
-                    component.toggleFlag();
-                }
-                game.victory_check();
-            }
-        } else { //If the game isn't running, then it would be time to bring up results.
-            game.startScoreboard();
-        }
-    }
-
-    @Override
-    public void mousePressed(MouseEvent e) {
-
-    }
-
-    @Override
-    public void mouseReleased(MouseEvent e) {
-
-    }
-
-    @Override
-    public void mouseEntered(MouseEvent e) {
-
-    }
-
-    @Override
-    public void mouseExited(MouseEvent e) {
-
-    }
-}
-
-class KeyboardListener implements KeyListener {
-
-    private final Game game; // game passed through to allow for game manipulation
-
-    public KeyboardListener(Game game) {
-        this.game = game;
-    }
-
-    @Override
-    public void keyTyped(KeyEvent e) {
-
-    }
-
-    @Override
-    public void keyPressed(KeyEvent e) {
-        //                this.game.repaint();
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_UP -> System.out.println("Up");
-            case KeyEvent.VK_DOWN -> System.out.println("Down");
-            case KeyEvent.VK_LEFT -> System.out.println("Left");
-            case KeyEvent.VK_RIGHT -> System.out.println("Right");
-            case KeyEvent.VK_SPACE -> {
-                System.out.println("SPACEBAR: Reset Game");
-                this.game.initialise(16, 16, 128);
-                this.game.revalidate(); // repaints node children, rather than node
-            }
-            default -> System.out.println("Other");
-        }
-    }
-
-    @Override
-    public void keyReleased(KeyEvent e) {
-
-    }
-}
-
-public class main {
-    public static void main(String[] args) {
-        new Game();
-    }
-}
+package COVIDSweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+class Score implements Comparable<Score> { //A quick score data structure.
+    String name;
+    int score;
+
+    Score (String name, int score) {
+        this.name = name;
+        this.score = score;
+    }
+
+    @Override
+    public int compareTo(Score o) {
+        if (this == o) {
+            return 0;
+        } else if (this.score == o.score) { //If they're the same score, compare the names.
+            return this.name.compareTo(o.name);
+        } else if (this.score > o.score) {
+            return 1;
+        } else {
+            return -1;
+        }
+    }
+}
+
+class Leaderboard { // Only ever holds the best few scores, however many get offered.
+    private final int size;
+    private final PriorityQueue<Score> heap; // Worst of the kept scores on top, so it's the one to drop.
+
+    Leaderboard(int size) {
+        this.size = size;
+        this.heap = new PriorityQueue<>(size + 1);
+    }
+
+    public void offer(Score score) {
+        if (heap.size() < size) {
+            heap.add(score);
+        } else if (size > 0 && score.compareTo(heap.peek()) > 0) {
+            heap.poll();
+            heap.add(score);
+        }
+    }
+
+    // Place this score takes on the board as top() lists it (1 is the best), 0 if it doesn't make the board.
+    // Ties go by name like Score.compareTo, so it's where the player sees themselves in the list.
+    public int rank(Score score) {
+        if (heap.size() == size && (size == 0 || score.compareTo(heap.peek()) < 0)) {
+            return 0;
+        }
+        int place = 1;
+        for (Score kept : heap) {
+            if (kept.compareTo(score) > 0) {
+                place++;
+            }
+        }
+        return place;
+    }
+
+    public ArrayList<Score> top() { // Best first, same order Collections.reverseOrder() gave.
+        ArrayList<Score> best = new ArrayList<>(heap);
+        best.sort(Collections.reverseOrder());
+        return best;
+    }
+}
+
+class ScoreIndex { // Every kept score, looked up by player or by score, without a pass over the lot for each question.
+    // The scores sit in a treap (a search tree kept balanced by random priorities) laid out over plain arrays, and
+    // every node knows how many are under it, so ranks, percentiles, ranges and the nth best are all O(log n).
+    // Ties go in name order, same as Score.compareTo. Not thread-safe, ScoreWindow only touches it from its loader.
+    static final class Player {
+        final String name;
+        final int id;
+        int best = Integer.MIN_VALUE;
+        int games = 0;
+        long total = 0;
+
+        Player(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    private final HashMap<String, Player> players = new HashMap<>();
+    private final ArrayList<Player> by_id = new ArrayList<>(); // Nodes hold a player id, not another copy of the name.
+    // Node 0 stands for "nothing there", real nodes start at 1.
+    private int[] scores = new int[64];
+    private int[] owners = new int[64];
+    private int[] priorities = new int[64];
+    private int[] lefts = new int[64];
+    private int[] rights = new int[64];
+    private int[] under = new int[64]; // Nodes in the subtree, this one included.
+    private int count = 0;
+    private int root = 0;
+    private int split_left; // What split() hands back.
+    private int split_right;
+    private final SplittableRandom rand = new SplittableRandom();
+    private ScoreJournal.Mark read_to = null;
+
+    public void add(Score score) {
+        Player player = players.get(score.name);
+        if (player == null) {
+            player = new Player(score.name, by_id.size());
+            players.put(score.name, player);
+            by_id.add(player);
+        }
+        player.best = Math.max(player.best, score.score);
+        player.games++;
+        player.total += score.score;
+        if (++count == scores.length) {
+            int grown = scores.length * 2;
+            scores = Arrays.copyOf(scores, grown);
+            owners = Arrays.copyOf(owners, grown);
+            priorities = Arrays.copyOf(priorities, grown);
+            lefts = Arrays.copyOf(lefts, grown);
+            rights = Arrays.copyOf(rights, grown);
+            under = Arrays.copyOf(under, grown);
+        }
+        scores[count] = score.score;
+        owners[count] = player.id;
+        priorities[count] = rand.nextInt();
+        lefts[count] = 0; // Could be left over from before a clear().
+        rights[count] = 0;
+        under[count] = 1;
+        root = insert(root, count);
+    }
+
+    // Reads whatever's been added to the journal since last time. The whole lot only gets read again after
+    // the journal's been folded into a new snapshot.
+    public void catchUp(ScoreJournal journal) throws IOException {
+        try {
+            read_to = journal.forEachSince(read_to, this::clear, this::add);
+        } catch (IOException e) { // Half read, don't count any of it twice next time.
+            clear();
+            read_to = null;
+            throw e;
+        }
+    }
+
+    public void clear() {
+        players.clear();
+        by_id.clear();
+        count = 0;
+        root = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Player player(String name) { // Null if they've never finished a game.
+        return players.get(name);
+    }
+
+    public int above(int score) { // How many scores beat this one.
+        int found = 0;
+        for (int at = root; at != 0; ) {
+            if (scores[at] > score) {
+                found += under[rights[at]] + 1;
+                at = lefts[at];
+            } else {
+                at = rights[at];
+            }
+        }
+        return found;
+    }
+
+    public int below(int score) { // How many this one beats.
+        int found = 0;
+        for (int at = root; at != 0; ) {
+            if (scores[at] < score) {
+                found += under[lefts[at]] + 1;
+                at = rights[at];
+            } else {
+                at = lefts[at];
+            }
+        }
+        return found;
+    }
+
+    public int between(int low, int high) { // Scores from low to high, both included.
+        return low > high ? 0 : count - below(low) - above(high);
+    }
+
+    public int rank(int score) { // Place this score would take (1 is the best), ties share a place.
+        return above(score) + 1;
+    }
+
+    public double percentile(int score) { // Share of the scores this one beats, in percent.
+        return count == 0 ? 100 : below(score) * 100.0 / count;
+    }
+
+    public Score nth(int place) { // 1 is the best.
+        if (place < 1 || place > count) {
+            throw new IllegalArgumentException("No place " + place + " in " + count + " scores");
+        }
+        int wanted = count - place; // Same place counting up from the worst, from 0.
+        int at = root;
+        while (at != 0) {
+            int left = under[lefts[at]];
+            if (wanted < left) {
+                at = lefts[at];
+            } else if (wanted == left) {
+                break;
+            } else {
+                wanted -= left + 1;
+                at = rights[at];
+            }
+        }
+        return new Score(by_id.get(owners[at]).name, scores[at]);
+    }
+
+    public ArrayList<Score> top(int size) { // Best first.
+        ArrayList<Score> best = new ArrayList<>();
+        for (int place = 1; place <= Math.min(size, count); place++) {
+            best.add(nth(place));
+        }
+        return best;
+    }
+
+    private boolean before(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && by_id.get(owners[a]).name.compareTo(by_id.get(owners[b]).name) < 0);
+    }
+
+    private int insert(int at, int node) { // Returns the subtree's new top.
+        if (at == 0) {
+            return node;
+        }
+        if (priorities[node] > priorities[at]) { // Goes above this one, which gets split either side of it.
+            split(at, node);
+            lefts[node] = split_left;
+            rights[node] = split_right;
+            under[node] = 1 + under[split_left] + under[split_right];
+            return node;
+        }
+        if (before(node, at)) {
+            lefts[at] = insert(lefts[at], node);
+        } else {
+            rights[at] = insert(rights[at], node);
+        }
+        under[at]++;
+        return at;
+    }
+
+    private void split(int at, int node) { // Into split_left, everything before node, and split_right, the rest.
+        if (at == 0) {
+            split_left = 0;
+            split_right = 0;
+            return;
+        }
+        if (before(at, node)) {
+            split(rights[at], node);
+            rights[at] = split_left;
+            split_left = at;
+        } else {
+            split(lefts[at], node);
+            lefts[at] = split_right;
+            split_right = at;
+        }
+        under[at] = 1 + under[lefts[at]] + under[rights[at]];
+    }
+}
+
+class FileHandler {
+    File file;
+    Scanner scanner;
+    FileWriter quil;
+
+    public ArrayList<String> readingStringiness(String filename) throws FileNotFoundException {
+        // Whatever uses FileHandler will have to account for I/O exceptions.
+        ArrayList<String> lines = new ArrayList<>();
+        file = new File(filename);
+        scanner = new Scanner(file);
+        while (scanner.hasNextLine()) {
+            lines.add(scanner.nextLine()); //Read into String Array.
+        }
+
+        return lines;
+    }
+
+    public void writingFile(String filename, String data) throws IOException {
+        file = new File(filename);
+        quil = new FileWriter(file);
+        quil.write(data + "\n"); //This one replaces the text file with a near-identical copy.
+        quil.close();
+    }
+
+    public void writingScoreFile(String filename, ArrayList<Score> data) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(filename);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(stream))) { //One buffered pass, header and all.
+            out.write("Scores\n======\n");
+            for (Score i : data)
+                out.write(i.name.replace('\n', ' ').replace('\r', ' ') + "=" + i.score + "\n"); //One line per score whatever the name.
+            out.flush();
+            stream.getFD().sync(); //On the disk before anyone renames it into place.
+        }
+    }
+
+    public void readingScoreFile(String filename, Consumer<Score> action) throws IOException {
+        // Hands over each name=score entry as it's read instead of keeping every line around.
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            reader.readLine(); //Skip the "Scores" and "======" header.
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int split = line.lastIndexOf('=');
+                if (split < 0) {
+                    continue;
+                }
+                int score;
+                try {
+                    score = Integer.parseInt(line.substring(split + 1).strip());
+                } catch (NumberFormatException e) { //Hand edited or otherwise mangled, skip it rather than lose the rest.
+                    continue;
+                }
+                action.accept(new Score(line.substring(0, split), score));
+            }
+        }
+    }
+}
+
+class ScoreJournal { // New scores get appended to a small binary journal, scores.txt is only rebuilt now and then.
+    // Several games can share these files, so anything touching them holds an OS lock on the .lock file.
+    // Journal records carry a CRC so half a record from a crashed game gets noticed and cut off.
+    static final long COMPACT_BYTES = 16 * 1024; // Journal size that gets it folded back into the snapshot.
+    static final long GROUP_NANOS = 20_000_000; // While scores are coming in together, how long a write waits for more.
+
+    final Path snapshot; // The usual "Scores\n======" text file, kept sorted best first.
+    final Path journal; // name/score records added since the snapshot was last rebuilt.
+    private final Path fresh_snapshot; // The next snapshot while it's being written.
+    private final Path retired_journal; // A journal the fresh snapshot already includes.
+    private final Path lock_file;
+    private final FileHandler files = new FileHandler();
+    private final Object file_guard = new Object(); // FileLocks are per process, this keeps our own threads in line.
+    private final LinkedBlockingQueue<Score> pending = new LinkedBlockingQueue<>();
+    private static final Metrics.Histogram READ_TIME = Metrics.histogram("score.read_us");
+    private static final Metrics.Histogram WRITE_TIME = Metrics.histogram("score.write_us");
+    private long queued = 0; // Both guarded by this.
+    private long written = 0;
+
+    private interface LockedWork {
+        void run() throws IOException;
+    }
+
+    static final class Mark { // How far a reader got: which snapshot it read, and where in the journal after it it stopped.
+        final FileTime snapshot_time; // Null if there was no snapshot.
+        final long snapshot_size;
+        final long journal_end;
+
+        Mark(FileTime snapshot_time, long snapshot_size, long journal_end) {
+            this.snapshot_time = snapshot_time;
+            this.snapshot_size = snapshot_size;
+            this.journal_end = journal_end;
+        }
+    }
+
+    ScoreJournal(String snapshot, String journal) {
+        this.snapshot = Paths.get(snapshot);
+        this.journal = Paths.get(journal);
+        this.fresh_snapshot = Paths.get(snapshot + ".tmp");
+        this.retired_journal = Paths.get(journal + ".old");
+        this.lock_file = Paths.get(snapshot + ".lock");
+        Thread writer = new Thread(this::writeLoop, "score-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2000))); //Don't drop scores on System.exit.
+    }
+
+    public synchronized void append(Score score) { // Doesn't wait for the disk, the writer thread picks it up.
+        queued++;
+        pending.add(score);
+    }
+
+    public synchronized boolean flush(long millis) { // Waits until everything appended so far is on disk.
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            while (written < queued) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                wait(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    public void forEach(Consumer<Score> action) throws IOException { // Snapshot first, then the journal.
+        forEachSince(null, () -> {}, action);
+    }
+
+    // Only the scores added since the mark, as long as the snapshot hasn't been rebuilt in the meantime. If it has
+    // (or there's no mark) restart gets run and everything is read again. Returns the mark for next time.
+    public Mark forEachSince(Mark since, Runnable restart, Consumer<Score> action) throws IOException {
+        long began = System.nanoTime();
+        ScoreIOEvent event = new ScoreIOEvent();
+        event.begin();
+        int[] read = {0};
+        Consumer<Score> counted = score -> {
+            read[0]++;
+            action.accept(score);
+        };
+        Mark[] reached = {null};
+        locked(() -> {
+            BasicFileAttributes attributes = Files.exists(snapshot) ? Files.readAttributes(snapshot, BasicFileAttributes.class) : null;
+            FileTime time = attributes == null ? null : attributes.lastModifiedTime();
+            long size = attributes == null ? -1 : attributes.size();
+            byte[] data = Files.exists(journal) ? Files.readAllBytes(journal) : new byte[0];
+            int from = 0;
+            if (since != null && Objects.equals(since.snapshot_time, time) && since.snapshot_size == size
+                    && since.journal_end <= data.length) {
+                from = (int) since.journal_end;
+            } else {
+                restart.run();
+                readSnapshot(counted);
+            }
+            reached[0] = new Mark(time, size, readJournal(data, from, counted));
+        });
+        READ_TIME.since(began);
+        event.operation = "read";
+        event.scores = read[0];
+        event.commit();
+        return reached[0];
+    }
+
+    public void compact() throws IOException {
+        locked(this::compactLocked);
+    }
+
+    // Group commit: whatever queued up during the last write goes out in the next one. A lone score is written straight
+    // away, only once scores have been arriving together (the last batch had more than one) does a write hold on for
+    // GROUP_NANOS to let the rest of the burst join it.
+    private void writeLoop() {
+        ArrayList<Score> batch = new ArrayList<>();
+        boolean busy = false;
+        while (true) {
+            try {
+                batch.add(pending.take());
+                if (busy) {
+                    long deadline = System.nanoTime() + GROUP_NANOS;
+                    Score more;
+                    while ((more = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null) {
+                        batch.add(more);
+                    }
+                }
+                pending.drainTo(batch);
+                busy = batch.size() > 1;
+                long began = System.nanoTime();
+                ScoreIOEvent event = new ScoreIOEvent();
+                event.begin();
+                appendBatch(batch);
+                WRITE_TIME.since(began);
+                event.operation = "write";
+                event.scores = batch.size();
+                event.commit();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) { //Logged, but the writer keeps going or every later score is lost.
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void appendBatch(ArrayList<Score> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Score score : batch) {
+            writeRecord(bytes, score);
+        }
+        locked(() -> {
+            long size;
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long valid = readJournal(Files.readAllBytes(journal), 0, null);
+                if (valid < channel.size()) {
+                    channel.truncate(valid); //A game died half way through a write, drop the torn record.
+                }
+                channel.position(valid);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                size = channel.size();
+            }
+            if (size >= COMPACT_BYTES) {
+                compactLocked();
+            }
+        });
+    }
+
+    private void locked(LockedWork work) throws IOException {
+        synchronized (file_guard) {
+            try (FileChannel channel = FileChannel.open(lock_file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    recover();
+                    work.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    // A compaction writes fresh_snapshot, retires the journal, renames the snapshot over and deletes the
+    // retired journal. Whichever step it died on, this puts the files back to one consistent state.
+    private void recover() throws IOException {
+        boolean fresh = Files.exists(fresh_snapshot);
+        boolean retired = Files.exists(retired_journal);
+        if (fresh && retired) { //The fresh snapshot was complete, it just never got renamed.
+            Files.move(fresh_snapshot, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } else if (fresh) { //Died while writing it, the old snapshot and journal still hold everything.
+            Files.delete(fresh_snapshot);
+        }
+        if (retired) {
+            Files.delete(retired_journal);
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        ArrayList<Score> all = new ArrayList<>();
+        readSnapshot(all::add);
+        if (Files.exists(journal)) {
+            readJournal(Files.readAllBytes(journal), 0, all::add);
+        }
+        all.sort(Collections.reverseOrder());
+        files.writingScoreFile(fresh_snapshot.toString(), all);
+        if (Files.exists(journal)) {
+            Files.move(journal, retired_journal, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(fresh_snapshot, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(retired_journal);
+    }
+
+    private void readSnapshot(Consumer<Score> action) throws IOException {
+        try {
+            files.readingScoreFile(snapshot.toString(), action);
+        } catch (FileNotFoundException ignored) { //Nobody has finished a game yet.
+        }
+    }
+
+    // Record: name length (2 bytes), UTF-8 name, score, CRC32 of the lot.
+    private static void writeRecord(ByteArrayOutputStream out, Score score) {
+        String name = score.name.length() > 16384 ? score.name.substring(0, 16384) : score.name;
+        byte[] name_bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(2 + name_bytes.length + 8);
+        record.putShort((short) name_bytes.length).put(name_bytes).putInt(score.score);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        out.write(record.array(), 0, record.capacity());
+    }
+
+    private static long readJournal(byte[] data, int from, Consumer<Score> action) { // Returns where the intact records end.
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(from);
+        CRC32 crc = new CRC32();
+        int valid = from;
+        while (buffer.remaining() >= 2) {
+            int start = buffer.position();
+            int length = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < length + 8) {
+                break;
+            }
+            buffer.position(start + 2 + length);
+            int score = buffer.getInt();
+            crc.reset();
+            crc.update(data, start, 2 + length + 4);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            if (action != null) {
+                action.accept(new Score(new String(data, start + 2, length, StandardCharsets.UTF_8), score));
+            }
+            valid = buffer.position();
+        }
+        return valid;
+    }
+}
+
+final class Topology { // Which cells touch which. Boards, the counter, reveals and the solver all go through this.
+    // Hex boards are rows of cells with every odd row pushed half a cell right, so each cell touches six.
+    // A torus is a square board whose edges wrap round to the other side.
+    enum Shape { SQUARE, TORUS, HEX }
+
+    static final int MAX_NEIGHBOURS = 8;
+    // (row, col) steps to each neighbour, for cells on even rows then odd rows. Only hex rows differ.
+    private static final int[][][] SQUARE_STEPS = {
+            {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}},
+            {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}}};
+    private static final int[][][] HEX_STEPS = {
+            {{-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 0}},
+            {{-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, 0}, {1, 1}}};
+
+    final Shape shape;
+    final int rows;
+    final int cols;
+    final int size;
+    private final int[][][] steps;
+    private final int[][] offsets; // The same steps as index differences, good for any cell off the edge.
+    private Board blank; // Guarded by this, made the first time a session asks.
+
+    Topology(Shape shape, int rows, int cols) {
+        if (shape == Shape.TORUS && (rows < 3 || cols < 3)) { // Any smaller and a cell would wrap round to touch itself.
+            throw new IllegalArgumentException("A torus needs at least 3x3 cells, not " + rows + "x" + cols);
+        }
+        this.shape = shape;
+        this.rows = rows;
+        this.cols = cols;
+        this.size = rows * cols;
+        steps = shape == Shape.HEX ? HEX_STEPS : SQUARE_STEPS;
+        offsets = new int[2][steps[0].length];
+        for (int parity = 0; parity < 2; parity++) {
+            for (int k = 0; k < steps[parity].length; k++) {
+                offsets[parity][k] = steps[parity][k][0] * cols + steps[parity][k][1];
+            }
+        }
+    }
+
+    static Topology square(int rows, int cols) {
+        return new Topology(Shape.SQUARE, rows, cols);
+    }
+
+    static Shape shape(String name) {
+        return switch (name) {
+            case "square" -> Shape.SQUARE;
+            case "torus" -> Shape.TORUS;
+            case "hex" -> Shape.HEX;
+            default -> throw new IllegalArgumentException("No board shape called " + name + ", try square, torus or hex.");
+        };
+    }
+
+    // An empty board every session on this topology starts out with. Nothing ever writes to it, whoever
+    // wants to put something down swaps in a board of their own first, so a game nobody's clicked costs nothing.
+    synchronized Board blank() {
+        if (blank == null) {
+            blank = new Board(this);
+        }
+        return blank;
+    }
+
+    public boolean same(Shape shape, int rows, int cols) {
+        return this.shape == shape && this.rows == rows && this.cols == cols;
+    }
+
+    // Fills into (at least MAX_NEIGHBOURS long) with the cells touching cell and returns how many there are.
+    // Anything off the edge is a straight run of adds, only the edge cells need the bounds checks or wrapping.
+    public int neighbours(int cell, int[] into) {
+        int row = cell / cols;
+        int col = cell - row * cols;
+        if (row > 0 && row < rows - 1 && col > 0 && col < cols - 1) {
+            int[] offset = offsets[row & 1];
+            for (int k = 0; k < offset.length; k++) {
+                into[k] = cell + offset[k];
+            }
+            return offset.length;
+        }
+        return edgeNeighbours(row, col, into);
+    }
+
+    private int edgeNeighbours(int row, int col, int[] into) {
+        int n = 0;
+        for (int[] step : steps[row & 1]) {
+            int i = row + step[0];
+            int j = col + step[1];
+            if (shape == Shape.TORUS) {
+                i = (i + rows) % rows;
+                j = (j + cols) % cols;
+            } else if (i < 0 || i >= rows || j < 0 || j >= cols) {
+                continue;
+            }
+            into[n++] = i * cols + j;
+        }
+        return n;
+    }
+}
+
+class Board { // The actual game state, kept as packed bit planes so it can be huge (or headless).
+    final Topology topology;
+    final int rows;
+    final int cols;
+    final int size;
+    final long[] mines; // One bit per cell, cell index = row * cols + col.
+    final long[] revealed;
+    final long[] flagged;
+    final byte[] counts; // Mines in each cell and the ones touching it.
+    int mine_count = 0;
+    int correct_flags = 0; // Live tallies so checking for a win never has to walk the board.
+    int wrong_flags = 0;
+    int triggered_mines = 0;
+    int revealed_safe = 0;
+    long seed; // What the mines were placed from, with opening that's enough to rebuild the board.
+    int opening = -1;
+    private int[] queue = new int[0]; // Flood fill work queue, also the list of what the last reveal uncovered.
+    private final int[] around = new int[Topology.MAX_NEIGHBOURS];
+
+    Board(int rows, int cols) {
+        this(Topology.square(rows, cols));
+    }
+
+    Board(Topology topology) {
+        this.topology = topology;
+        this.rows = topology.rows;
+        this.cols = topology.cols;
+        this.size = topology.size;
+        int words = (size + 63) >>> 6;
+        mines = new long[words];
+        revealed = new long[words];
+        flagged = new long[words];
+        counts = new byte[size];
+    }
+
+    static boolean get(long[] plane, int i) {
+        return (plane[i >>> 6] & (1L << i)) != 0; // Shifts on a long only use the low 6 bits.
+    }
+
+    static void set(long[] plane, int i) {
+        plane[i >>> 6] |= 1L << i;
+    }
+
+    static void clear(long[] plane, int i) {
+        plane[i >>> 6] &= ~(1L << i);
+    }
+
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    public int rowOf(int index) {
+        return index / cols;
+    }
+
+    public int colOf(int index) {
+        return index % cols;
+    }
+
+    public boolean isMine(int i) {
+        return get(mines, i);
+    }
+
+    public boolean isRevealed(int i) {
+        return get(revealed, i);
+    }
+
+    public boolean isFlagged(int i) {
+        return get(flagged, i);
+    }
+
+    public int getCount(int i) {
+        return counts[i];
+    }
+
+    public void placeMine(int i) {
+        if (!isMine(i)) {
+            set(mines, i);
+            mine_count++;
+        }
+    }
+
+    public void placeMines(int amount, long seed) {
+        placeMines(amount, seed, -1);
+    }
+
+    // Floyd's sampling over cell indices: exactly one draw per mine no matter how full the board is,
+    // and the same seed and start always give the same board.
+    // Start and the cells touching it are kept clear so the first click opens up, unless that doesn't leave
+    // room for every mine, then it's only start itself (or nothing, for a board that's all mines).
+    public void placeMines(int amount, long seed, int start) {
+        this.seed = seed;
+        this.opening = start;
+        int[] keep_clear = keepClear(start, amount);
+        int free = size - keep_clear.length;
+        SplittableRandom rand = new SplittableRandom(seed);
+        amount = Math.min(amount, free);
+        for (int j = free - amount; j < free; j++) {
+            int cell = skip(rand.nextInt(j + 1), keep_clear);
+            placeMine(isMine(cell) ? skip(j, keep_clear) : cell); // j can't have been picked yet, so it's free.
+        }
+    }
+
+    private int[] keepClear(int start, int amount) { // In index order, skip() relies on that.
+        if (start < 0 || amount >= size) {
+            return new int[0];
+        }
+        int[] block = new int[Topology.MAX_NEIGHBOURS + 1];
+        int n = topology.neighbours(start, block);
+        block[n++] = start;
+        Arrays.sort(block, 0, n); // Wrapped neighbours come out of order.
+        return size - n >= amount ? Arrays.copyOf(block, n) : new int[] {start};
+    }
+
+    private static int skip(int n, int[] keep_clear) { // The nth cell that isn't kept clear.
+        for (int cell : keep_clear) {
+            if (cell > n) {
+                break;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    public int countMines(int row, int col) {
+        return countMines(index(row, col), around);
+    }
+
+    int countMines(int cell, int[] around) { // around is scratch, so band counters on other threads bring their own.
+        int count = isMine(cell) ? 1 : 0;
+        int n = topology.neighbours(cell, around);
+        for (int k = 0; k < n; k++) {
+            count += (int) (mines[around[k] >>> 6] >>> around[k]) & 1;
+        }
+        return count;
+    }
+
+    public void countAllMines() {
+        new MineCounter(this, 0, rows).invoke(); // Runs inline, only big boards fork out to other cores.
+    }
+
+    public void uncover(int i) {
+        if (isRevealed(i)) {
+            return;
+        }
+        set(revealed, i);
+        if (isMine(i)) {
+            triggered_mines++;
+        } else {
+            revealed_safe++;
+        }
+    }
+
+    public void recount() { // Rebuilds the tallies from the planes, for a board that was loaded rather than played.
+        mine_count = 0;
+        correct_flags = 0;
+        wrong_flags = 0;
+        triggered_mines = 0;
+        revealed_safe = 0;
+        for (int w = 0; w < mines.length; w++) {
+            mine_count += Long.bitCount(mines[w]);
+            correct_flags += Long.bitCount(flagged[w] & mines[w]);
+            wrong_flags += Long.bitCount(flagged[w] & ~mines[w]);
+            triggered_mines += Long.bitCount(revealed[w] & mines[w]);
+            revealed_safe += Long.bitCount(revealed[w] & ~mines[w]);
+        }
+    }
+
+    public int nextMine(int from) { // Index of the first mine at or after from, -1 if there are none.
+        if (from >= size) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = mines[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == mines.length) {
+                return -1;
+            }
+            bits = mines[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    public int activeMines() { // Mines that haven't gone off yet.
+        return mine_count - triggered_mines;
+    }
+
+    public boolean allMinesFlagged() {
+        return correct_flags == activeMines();
+    }
+
+    private boolean opens(int i) { // Whether a cascade is allowed to uncover this cell.
+        return !isRevealed(i) && !isFlagged(i) && !isMine(i);
+    }
+
+    private int push(int tail, int i) {
+        if (tail == queue.length) {
+            queue = Arrays.copyOf(queue, Math.min(size, Math.max(64, tail * 2)));
+        }
+        set(revealed, i);
+        revealed_safe++;
+        queue[tail] = i;
+        return tail + 1;
+    }
+
+    // Uncovers start and keeps spreading through blank cells until it hits numbers.
+    // Returns how many cells were uncovered, they can be read back with revealedCell().
+    public int reveal(int start) {
+        if (!opens(start)) {
+            return 0;
+        }
+        int head = 0;
+        int tail = push(0, start);
+        while (head < tail) {
+            int cell = queue[head++];
+            if (counts[cell] != 0) {
+                continue;
+            }
+            int n = topology.neighbours(cell, around);
+            for (int k = 0; k < n; k++) {
+                if (opens(around[k])) {
+                    tail = push(tail, around[k]);
+                }
+            }
+        }
+        return tail;
+    }
+
+    public int revealedCell(int n) {
+        return queue[n];
+    }
+
+    public boolean toggleFlag(int i) { // Returns whether the cell is flagged afterwards.
+        if (isRevealed(i)) {
+            return false;
+        }
+        if (isFlagged(i)) {
+            clear(flagged, i);
+            if (isMine(i)) {
+                correct_flags--;
+            } else {
+                wrong_flags--;
+            }
+            return false;
+        }
+        set(flagged, i);
+        if (isMine(i)) {
+            correct_flags++;
+        } else {
+            wrong_flags++;
+        }
+        return true;
+    }
+}
+
+class MineCounter extends RecursiveAction { // Fills Board.counts from the mine plane, split into row bands.
+    static final int BAND_CELLS = 1 << 16; // Bands smaller than this aren't worth handing to another core.
+
+    private final Board board;
+    private final int from; // First row of the band.
+    private final int to; // One past the last row.
+
+    MineCounter(Board board, int from, int to) {
+        this.board = board;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from < 2 || (long) (to - from) * board.cols <= BAND_CELLS) {
+            if (board.topology.shape == Topology.Shape.SQUARE) {
+                countRows();
+            } else {
+                countCells();
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new MineCounter(board, from, middle), new MineCounter(board, middle, to));
+        }
+    }
+
+    // Each count is the sum of three horizontal 3-wide sums (the row above, this row, the row below),
+    // so every row only gets its bits read once per band instead of up to nine times per cell.
+    private void countRows() {
+        int cols = board.cols;
+        byte[] above = new byte[cols];
+        byte[] here = new byte[cols];
+        byte[] below = new byte[cols];
+        rowSums(from - 1, above);
+        rowSums(from, here);
+        for (int row = from; row < to; row++) {
+            rowSums(row + 1, below);
+            int base = row * cols;
+            for (int col = 0; col < cols; col++) {
+                board.counts[base + col] = (byte) (above[col] + here[col] + below[col]);
+            }
+            byte[] spare = above;
+            above = here;
+            here = below;
+            below = spare;
+        }
+    }
+
+    private void countCells() { // Torus and hex boards, a cell at a time through the topology.
+        int[] around = new int[Topology.MAX_NEIGHBOURS];
+        for (int cell = from * board.cols; cell < to * board.cols; cell++) {
+            board.counts[cell] = (byte) board.countMines(cell, around);
+        }
+    }
+
+    private void rowSums(int row, byte[] sums) {
+        if (row < 0 || row >= board.rows) {
+            Arrays.fill(sums, (byte) 0);
+            return;
+        }
+        int base = row * board.cols;
+        int last = board.cols - 1;
+        int left = 0;
+        int middle = board.isMine(base) ? 1 : 0;
+        for (int col = 0; col <= last; col++) {
+            int right = col < last && board.isMine(base + col + 1) ? 1 : 0;
+            sums[col] = (byte) (left + middle + right);
+            left = middle;
+            middle = right;
+        }
+    }
+}
+
+class Solver { // Works out which covered cells are certainly safe or certainly mines, from what the player can see.
+    static final int MAX_COMPONENT = 32; // Frontier pieces bigger than this don't get enumerated, 2^n gets silly.
+    static final int PARALLEL_CELLS = 256; // Enough frontier to be worth farming the components out to other cores.
+
+    private final Board board;
+    final long[] safe; // Covered cells proven safe.
+    final long[] mines; // Cells known to be mines. Flags are taken at their word.
+    private final long[] queued; // Numbers already waiting in work.
+    private final long[] pair_dirty; // Numbers whose surroundings changed since the pair rules last ran.
+    private final long[] cached; // Numbers whose masks and needs entries are up to date.
+    private final byte[] masks; // Bit k set when the number's kth neighbour is still unknown.
+    private final byte[] needs;
+    private final long[] seen_revealed; // The board as of the last solve, so only what changed gets rechecked.
+    private final long[] seen_flags;
+    private int[] work = new int[64]; // Revealed numbers to (re)check with the single cell rule.
+    private int work_size = 0;
+    private int[] local_id = new int[0]; // Cell index to frontier position, only used during enumeration.
+    // Scratch for neighbour lists, one each so the steps that nest inside each other don't trample one another.
+    private final int[] around = new int[Topology.MAX_NEIGHBOURS]; // touch() and refresh()
+    private final int[] marking = new int[Topology.MAX_NEIGHBOURS];
+    private final int[] a_cells = new int[Topology.MAX_NEIGHBOURS];
+    private final int[] b_cells = new int[Topology.MAX_NEIGHBOURS];
+    private final int[] near = new int[Topology.MAX_NEIGHBOURS];
+    private final int[] partners = new int[Topology.MAX_NEIGHBOURS * Topology.MAX_NEIGHBOURS];
+
+    Solver(Board board) {
+        this.board = board;
+        safe = new long[board.mines.length];
+        mines = new long[board.mines.length];
+        queued = new long[board.mines.length];
+        pair_dirty = new long[board.mines.length];
+        cached = new long[board.mines.length];
+        masks = new byte[board.size];
+        needs = new byte[board.size];
+        seen_revealed = new long[board.mines.length];
+        seen_flags = new long[board.mines.length];
+    }
+
+    public boolean isSafe(int i) {
+        return Board.get(safe, i);
+    }
+
+    public boolean isMine(int i) {
+        return Board.get(mines, i);
+    }
+
+    public int nextSafe(int from) { // Next proven safe cell that's still covered, -1 if there are none.
+        return next(from, safe, board.revealed, null);
+    }
+
+    public int nextMine(int from) { // Next proven mine that isn't flagged or set off yet.
+        return next(from, mines, board.revealed, board.flagged);
+    }
+
+    private int next(int from, long[] plane, long[] skip, long[] skip_too) {
+        if (from >= board.size) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = plane[word] & ~skip[word] & (skip_too == null ? -1L : ~skip_too[word]) & (-1L << from);
+        while (bits == 0) {
+            if (++word == plane.length) {
+                return -1;
+            }
+            bits = plane[word] & ~skip[word] & (skip_too == null ? -1L : ~skip_too[word]);
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // Carries on from the last call and only rechecks around cells revealed since. If a flag was taken
+    // away, or put somewhere it didn't prove was a mine, it starts over since old deductions may lean on it.
+    // Returns whether it knows anything the player can act on.
+    public boolean solve() {
+        boolean restart = false;
+        for (int w = 0; w < mines.length && !restart; w++) {
+            restart = (seen_flags[w] & ~board.flagged[w]) != 0 || (board.flagged[w] & ~seen_flags[w] & ~mines[w]) != 0;
+        }
+        if (restart) {
+            Arrays.fill(safe, 0);
+            Arrays.fill(mines, 0);
+            Arrays.fill(queued, 0);
+            Arrays.fill(pair_dirty, 0);
+            Arrays.fill(cached, 0);
+            Arrays.fill(seen_revealed, 0);
+            work_size = 0;
+        }
+        for (int w = 0; w < mines.length; w++) {
+            mines[w] |= board.flagged[w] | (board.revealed[w] & board.mines[w]); //Flags and mines that went off.
+            seen_flags[w] = board.flagged[w];
+            long fresh = board.revealed[w] & ~seen_revealed[w];
+            seen_revealed[w] = board.revealed[w];
+            while (fresh != 0) {
+                touch((w << 6) + Long.numberOfTrailingZeros(fresh));
+                fresh &= fresh - 1;
+            }
+        }
+        boolean progress = true;
+        while (progress) {
+            progress = singleRules();
+            if (!progress) {
+                progress = pairRules();
+            }
+            if (!progress) {
+                progress = enumerate();
+            }
+        }
+        return nextSafe(0) >= 0 || nextMine(0) >= 0;
+    }
+
+    private boolean unknown(int i) {
+        return !board.isRevealed(i) && !Board.get(safe, i) && !Board.get(mines, i);
+    }
+
+    private boolean isNumber(int i) {
+        return board.isRevealed(i) && !board.isMine(i);
+    }
+
+    private void push(int number) {
+        Board.set(pair_dirty, number);
+        Board.clear(cached, number);
+        if (Board.get(queued, number)) {
+            return;
+        }
+        Board.set(queued, number);
+        if (work_size == work.length) {
+            work = Arrays.copyOf(work, work_size * 2);
+        }
+        work[work_size++] = number;
+    }
+
+    private void mark(int cell, boolean mine) { // Records a deduction and queues the numbers it affects.
+        Board.set(mine ? mines : safe, cell);
+        touch(cell);
+    }
+
+    private void touch(int cell) { // Queues a cell that changed and every number touching it.
+        if (isNumber(cell)) {
+            push(cell);
+        }
+        int n = board.topology.neighbours(cell, around);
+        for (int k = 0; k < n; k++) {
+            if (isNumber(around[k])) {
+                push(around[k]);
+            }
+        }
+    }
+
+    private int need(int number) { // Mines still missing around a number.
+        if (!Board.get(cached, number)) {
+            refresh(number);
+        }
+        return needs[number];
+    }
+
+    // Unknown cells around a number, bit k for the kth cell the topology lists as touching it.
+    private int mask(int number) {
+        if (!Board.get(cached, number)) {
+            refresh(number);
+        }
+        return masks[number] & 0xFF;
+    }
+
+    private void refresh(int number) {
+        int mask = 0;
+        int found = 0;
+        int n = board.topology.neighbours(number, around);
+        for (int k = 0; k < n; k++) {
+            if (Board.get(mines, around[k])) {
+                found++;
+            } else if (unknown(around[k])) {
+                mask |= 1 << k;
+            }
+        }
+        masks[number] = (byte) mask;
+        needs[number] = (byte) (board.getCount(number) - found);
+        Board.set(cached, number);
+    }
+
+    private int unknowns(int number, int[] into) { // into must not be around, refreshing the mask uses that.
+        int mask = mask(number);
+        board.topology.neighbours(number, around);
+        int n = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            into[n++] = around[Integer.numberOfTrailingZeros(mask)];
+        }
+        return n;
+    }
+
+    // A number needing 0 more mines makes the rest safe, one needing as many as it has unknowns makes them all mines.
+    private boolean singleRules() {
+        boolean progress = false;
+        while (work_size > 0) {
+            int number = work[--work_size];
+            Board.clear(queued, number);
+            int mask = mask(number);
+            int n = Integer.bitCount(mask);
+            int need = need(number);
+            if (n == 0 || (need != 0 && need != n)) {
+                continue;
+            }
+            unknowns(number, marking);
+            for (int k = 0; k < n; k++) {
+                mark(marking[k], need != 0);
+            }
+            progress = true;
+        }
+        return progress;
+    }
+
+    // For two overlapping numbers A and B: if B needs exactly as many more mines than A as it has cells A
+    // can't see, those cells are all mines and the cells only A can see are all safe.
+    // Only pairs with a number that changed since the last pass get looked at again, and only numbers
+    // sharing an unknown cell can say anything about each other.
+    private boolean pairRules() {
+        boolean progress = false;
+        for (int w = 0; w < pair_dirty.length; w++) {
+            long numbers = pair_dirty[w];
+            pair_dirty[w] = 0;
+            for (; numbers != 0; numbers &= numbers - 1) {
+                int a = (w << 6) + Long.numberOfTrailingZeros(numbers);
+                int partners_n = 0;
+                int unknown_n = unknowns(a, marking); //Nothing left to say about it, or about pairs with it, if 0.
+                for (int u = 0; u < unknown_n; u++) {
+                    int n = board.topology.neighbours(marking[u], near);
+                    for (int k = 0; k < n; k++) {
+                        int b = near[k];
+                        if (b != a && isNumber(b) && !contains(partners, partners_n, b)) {
+                            partners[partners_n++] = b;
+                        }
+                    }
+                }
+                for (int p = 0; p < partners_n; p++) {
+                    progress |= pair(a, partners[p]);
+                    progress |= pair(partners[p], a);
+                }
+            }
+        }
+        return progress;
+    }
+
+    private static boolean contains(int[] cells, int n, int cell) {
+        for (int k = 0; k < n; k++) {
+            if (cells[k] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean pair(int a, int b) {
+        int a_n = unknowns(a, a_cells);
+        int b_n = unknowns(b, b_cells);
+        int a_shared = 0; // Bits over a_cells and b_cells for the unknowns both can see.
+        int b_shared = 0;
+        for (int i = 0; i < a_n; i++) {
+            for (int j = 0; j < b_n; j++) {
+                if (a_cells[i] == b_cells[j]) {
+                    a_shared |= 1 << i;
+                    b_shared |= 1 << j;
+                }
+            }
+        }
+        if (a_shared == 0) {
+            return false;
+        }
+        int only_a = a_n - Integer.bitCount(a_shared);
+        int only_b = b_n - Integer.bitCount(b_shared);
+        if (only_a == 0 && only_b == 0 || need(b) - need(a) != only_b) {
+            return false; //Same cells, or the rule doesn't fire.
+        }
+        for (int j = 0; j < b_n; j++) { // Marking only touches around, so both lists stay put meanwhile.
+            if ((b_shared & (1 << j)) == 0) {
+                mark(b_cells[j], true);
+            }
+        }
+        for (int i = 0; i < a_n; i++) {
+            if ((a_shared & (1 << i)) == 0) {
+                mark(a_cells[i], false);
+            }
+        }
+        return true;
+    }
+
+    // Splits the unknown cells next to numbers into pieces that share no numbers and tries every
+    // mine layout in each piece. Cells that are a mine in every layout, or in none, are settled.
+    private boolean enumerate() {
+        if (local_id.length != board.size) {
+            local_id = new int[board.size];
+            Arrays.fill(local_id, -1);
+        }
+        int[] frontier = new int[64];
+        int frontier_n = 0;
+        int[] numbers = new int[64];
+        int numbers_n = 0;
+        int[] cells = new int[8];
+        for (int w = 0; w < board.revealed.length; w++) {
+            for (long bits = board.revealed[w] & ~board.mines[w]; bits != 0; bits &= bits - 1) {
+                int number = (w << 6) + Long.numberOfTrailingZeros(bits);
+                int n = unknowns(number, cells);
+                if (n == 0) {
+                    continue;
+                }
+                if (numbers_n == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, numbers_n * 2);
+                }
+                numbers[numbers_n++] = number;
+                for (int k = 0; k < n; k++) {
+                    if (local_id[cells[k]] < 0) {
+                        if (frontier_n == frontier.length) {
+                            frontier = Arrays.copyOf(frontier, frontier_n * 2);
+                        }
+                        local_id[cells[k]] = frontier_n;
+                        frontier[frontier_n++] = cells[k];
+                    }
+                }
+            }
+        }
+        int[] parent = new int[frontier_n]; // Union-find over frontier cells that share a number.
+        for (int k = 0; k < frontier_n; k++) {
+            parent[k] = k;
+        }
+        for (int k = 0; k < numbers_n; k++) {
+            int n = unknowns(numbers[k], cells);
+            for (int c = 1; c < n; c++) {
+                parent[root(parent, local_id[cells[c]])] = root(parent, local_id[cells[0]]);
+            }
+        }
+        HashMap<Integer, Component> pieces = new HashMap<>();
+        int[] position = new int[frontier_n]; // Where each frontier cell sits inside its piece.
+        Arrays.fill(position, -1);
+        for (int k = 0; k < numbers_n; k++) {
+            int n = unknowns(numbers[k], cells);
+            for (int c = 0; c < n; c++) {
+                cells[c] = local_id[cells[c]];
+            }
+            Component piece = pieces.computeIfAbsent(root(parent, cells[0]), g -> new Component());
+            piece.add(need(numbers[k]), cells, n, frontier, position);
+        }
+        for (int k = 0; k < frontier_n; k++) {
+            local_id[frontier[k]] = -1;
+        }
+        ArrayList<Component> todo = new ArrayList<>();
+        for (Component piece : pieces.values()) {
+            if (piece.cells_n <= MAX_COMPONENT) {
+                todo.add(piece);
+            }
+        }
+        if (todo.size() > 1 && frontier_n >= PARALLEL_CELLS) {
+            todo.parallelStream().forEach(Component::search); //Pieces don't share anything, so they can run side by side.
+        } else {
+            todo.forEach(Component::search);
+        }
+        boolean progress = false;
+        for (Component piece : todo) {
+            for (int c = 0; c < piece.cells_n; c++) {
+                if (piece.solutions == 0) {
+                    break; //Contradiction, most likely a wrong flag. Nothing safe to say.
+                }
+                if (!piece.seen_mine[c]) {
+                    mark(piece.cells[c], false);
+                    progress = true;
+                } else if (!piece.seen_safe[c]) {
+                    mark(piece.cells[c], true);
+                    progress = true;
+                }
+            }
+        }
+        return progress;
+    }
+
+    private static int root(int[] parent, int k) {
+        while (parent[k] != k) {
+            parent[k] = parent[parent[k]];
+            k = parent[k];
+        }
+        return k;
+    }
+
+    static class Component { // One independent piece of the frontier and the numbers around it.
+        int[] cells = new int[8];
+        int cells_n = 0;
+        private final ArrayList<int[]> number_cells = new ArrayList<>(); // Positions in cells for each number.
+        private final ArrayList<Integer> needs = new ArrayList<>();
+        long solutions = 0;
+        boolean[] seen_mine; // Whether some layout had this cell as a mine,
+        boolean[] seen_safe; // or as safe.
+        private int settled = 0; // Cells seen both ways. Once that's all of them there's nothing left to learn.
+        private int[][] touching; // Numbers each cell takes part in.
+        private int[] need;
+        private int[] placed; // Mines assigned so far around each number.
+        private int[] open; // Cells not assigned yet around each number.
+        private boolean[] mine;
+
+        void add(int need, int[] unknown, int n, int[] frontier, int[] position) { // unknown holds frontier positions.
+            int[] positions = new int[n];
+            for (int k = 0; k < n; k++) {
+                if (position[unknown[k]] < 0) {
+                    if (cells_n == cells.length) {
+                        cells = Arrays.copyOf(cells, cells_n * 2);
+                    }
+                    position[unknown[k]] = cells_n;
+                    cells[cells_n++] = frontier[unknown[k]];
+                }
+                positions[k] = position[unknown[k]];
+            }
+            number_cells.add(positions);
+            needs.add(need);
+        }
+
+        void search() {
+            int numbers = number_cells.size();
+            need = new int[numbers];
+            placed = new int[numbers];
+            open = new int[numbers];
+            int[] touch_count = new int[cells_n];
+            for (int k = 0; k < numbers; k++) {
+                need[k] = needs.get(k);
+                open[k] = number_cells.get(k).length;
+                for (int c : number_cells.get(k)) {
+                    touch_count[c]++;
+                }
+            }
+            touching = new int[cells_n][];
+            for (int c = 0; c < cells_n; c++) {
+                touching[c] = new int[touch_count[c]];
+                touch_count[c] = 0;
+            }
+            for (int k = 0; k < numbers; k++) {
+                for (int c : number_cells.get(k)) {
+                    touching[c][touch_count[c]++] = k;
+                }
+            }
+            mine = new boolean[cells_n];
+            seen_mine = new boolean[cells_n];
+            seen_safe = new boolean[cells_n];
+            assign(0);
+        }
+
+        private void assign(int c) {
+            if (c == cells_n) {
+                solutions++;
+                for (int k = 0; k < cells_n; k++) {
+                    boolean[] seen = mine[k] ? seen_mine : seen_safe;
+                    if (!seen[k]) {
+                        seen[k] = true;
+                        if (seen_mine[k] && seen_safe[k]) {
+                            settled++;
+                        }
+                    }
+                }
+                return;
+            }
+            for (int value = 0; value <= 1 && settled < cells_n; value++) {
+                boolean fits = true;
+                for (int k : touching[c]) {
+                    open[k]--;
+                    placed[k] += value;
+                    if (placed[k] > need[k] || placed[k] + open[k] < need[k]) {
+                        fits = false;
+                    }
+                }
+                if (fits) {
+                    mine[c] = value == 1;
+                    assign(c + 1);
+                }
+                for (int k : touching[c]) {
+                    open[k]++;
+                    placed[k] -= value;
+                }
+            }
+            mine[c] = false;
+        }
+    }
+}
+
+class SaveFile { // A game in progress on disk: a fixed header, then the mine, revealed and flag planes as they are in memory.
+    // Header, big endian: magic, version, rows, cols, mines, lives, score, state bits, health, seed, opening, shape.
+    // The counts can always be worked out from the mines, so small boards leave them out. On big ones
+    // recounting takes far longer than reading them back, so they follow the flag plane, a byte per cell.
+    static final int MAGIC = 0x43535750; // "CSWP"
+    static final int VERSION = 1;
+    static final int HEADER = 64; // Padded so the planes start long aligned.
+    static final int RUNNING = 1;
+    static final int VICTORY = 2;
+    static final int INFECTED = 4;
+    static final int FIRST_TURN = 8;
+    static final int COUNTS = 16; // The count plane is in the file.
+    static final int SAVED_COUNTS = 1 << 16; // Boards with at least this many cells keep their counts.
+
+    final Topology.Shape shape;
+    final int rows; // The game as of when the snapshot was taken, planes copied so the game can carry on meanwhile.
+    final int cols;
+    final int mines;
+    final int lives;
+    final int score;
+    final int state;
+    final double health;
+    final long seed;
+    final int opening;
+    final long[] mine_plane;
+    final long[] revealed;
+    final long[] flagged;
+    final byte[] counts; // Null when they get recounted instead.
+
+    SaveFile(Session session) { // Cheap enough for the event thread, it's three bit plane copies.
+        Board board = session.board;
+        shape = session.topology.shape;
+        rows = session.rows;
+        cols = session.cols;
+        mines = session.mines;
+        lives = session.lives;
+        score = session.score;
+        state = (session.running ? RUNNING : 0) | (session.victory ? VICTORY : 0)
+                | (session.infected ? INFECTED : 0) | (session.first_turn ? FIRST_TURN : 0)
+                | (board.size >= SAVED_COUNTS ? COUNTS : 0);
+        health = session.health;
+        seed = session.seed;
+        opening = board.opening;
+        mine_plane = board.mines.clone();
+        revealed = board.revealed.clone();
+        flagged = board.flagged.clone();
+        counts = (state & COUNTS) != 0 ? board.counts : null; // Never change once the mines are down, no need to copy.
+    }
+
+    static long length(long cells, int state) {
+        return HEADER + 3 * ((cells + 63) >>> 6) * Long.BYTES + ((state & COUNTS) != 0 ? cells : 0);
+    }
+
+    public void write(Path path) throws IOException { // Goes to a .tmp first, so a crash never leaves half a save.
+        Path fresh = Paths.get(path + ".tmp");
+        long length = length((long) rows * cols, state);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("A " + rows + "x" + cols + " board is too big to save");
+        }
+        // A plain buffer rather than a mapping, Windows won't replace or delete a file while a mapping of it is still live.
+        try (FileChannel channel = FileChannel.open(fresh, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(mines).putInt(lives)
+                    .putInt(score).putInt(state).putDouble(health).putLong(seed).putInt(opening).putInt(shape.ordinal());
+            buffer.position(HEADER);
+            LongBuffer planes = buffer.asLongBuffer(); // Bulk copies, nothing per cell.
+            planes.put(mine_plane).put(revealed).put(flagged);
+            if (counts != null) {
+                buffer.position(buffer.position() + planes.position() * Long.BYTES);
+                buffer.put(counts);
+            }
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(fresh, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static Session read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is the wrong size to be a save");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(path + " got shorter while it was being read");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(path + " isn't a save this version can read");
+            }
+            int rows = buffer.getInt();
+            int cols = buffer.getInt();
+            int mines = buffer.getInt();
+            int lives = buffer.getInt();
+            int score = buffer.getInt();
+            int state = buffer.getInt();
+            double health = buffer.getDouble();
+            long seed = buffer.getLong();
+            int opening = buffer.getInt();
+            int shape = buffer.getInt(); // Saves from before there were shapes have 0 here, a square board.
+            long cells = (long) rows * cols;
+            if (rows <= 0 || cols <= 0 || cells > Integer.MAX_VALUE || shape < 0 || shape >= Topology.Shape.values().length
+                    || channel.size() != length(cells, state)) {
+                throw new IOException(path + " doesn't hold a " + rows + "x" + cols + " board");
+            }
+            Session session = new Session(new Topology(Topology.Shape.values()[shape], rows, cols), mines, seed);
+            Board board = new Board(session.topology);
+            session.board = board;
+            buffer.position(HEADER);
+            LongBuffer planes = buffer.asLongBuffer();
+            planes.get(board.mines).get(board.revealed).get(board.flagged);
+            if ((state & COUNTS) != 0) {
+                buffer.position(buffer.position() + planes.position() * Long.BYTES);
+                buffer.get(board.counts);
+            } else {
+                board.countAllMines();
+            }
+            board.seed = seed;
+            board.opening = opening;
+            board.recount();
+            restoreState(session, lives, score, health, state);
+            return session;
+        }
+    }
+
+    public Session restore() { // Straight back from memory, the replayer seeks with these.
+        Session session = new Session(new Topology(shape, rows, cols), mines, seed);
+        Board board = new Board(session.topology);
+        session.board = board;
+        System.arraycopy(mine_plane, 0, board.mines, 0, mine_plane.length);
+        System.arraycopy(revealed, 0, board.revealed, 0, revealed.length);
+        System.arraycopy(flagged, 0, board.flagged, 0, flagged.length);
+        if (counts != null) {
+            System.arraycopy(counts, 0, board.counts, 0, counts.length);
+        } else {
+            board.countAllMines();
+        }
+        board.seed = seed;
+        board.opening = opening;
+        board.recount();
+        restoreState(session, lives, score, health, state);
+        return session;
+    }
+
+    private static void restoreState(Session session, int lives, int score, double health, int state) {
+        session.lives = lives;
+        session.score = score;
+        session.health = health;
+        session.running = (state & RUNNING) != 0;
+        session.victory = (state & VICTORY) != 0;
+        session.infected = (state & INFECTED) != 0;
+        session.first_turn = (state & FIRST_TURN) != 0;
+    }
+}
+
+class ReplayLog { // Records games as their seeds plus every click, so any of them can be played back exactly.
+    // The file is a header then a stream of big endian ints. Each event's first int holds its kind in
+    // the top 4 bits and a cell (or nothing) below:
+    //   LEFT cell, RIGHT cell
+    //   RESET shape, rows, cols, mines, lives, seed high, seed low
+    //   OPENED opening, seed high, seed low - straight after the first left click, the board it got
+    //   RESUME - a saved game was picked back up, carry on from where the log left it
+    //   ROLL roll high, roll low - straight after the click (and its OPENED) that ended a game on the infection roll,
+    //   the double it came up with. Version 1 logs don't have these, their rolls came from the board's seed.
+    // Boards over 2^28 cells can't be recorded.
+    static final int MAGIC = 0x43535752; // "CSWR"
+    static final int VERSION = 2;
+    static final int LEFT = 1;
+    static final int RIGHT = 2;
+    static final int RESET = 3;
+    static final int OPENED = 4;
+    static final int RESUME = 5;
+    static final int ROLL = 6;
+    static final int CELL_BITS = 28;
+    static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    static final int CAPACITY = 1 << 16; // Ints per buffer, a long session's worth of clicks.
+    static final long FLUSH_MILLIS = 1000;
+
+    final Path path;
+    private int[] filling = new int[CAPACITY]; // Clicks land here, the writer swaps it for spare. Both guarded by this.
+    private int[] spare = new int[CAPACITY];
+    private int used = 0;
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(CAPACITY * Integer.BYTES); // Only touched holding write_guard.
+    private boolean upgraded = false; // Whether an older file's header has been checked yet, also only holding write_guard.
+    private final Object write_guard = new Object(); // The writer thread and the shutdown hook both flush.
+
+    ReplayLog(Path path) {
+        this.path = path;
+        Thread writer = new Thread(this::writeLoop, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+    }
+
+    static int event(int kind, int cell) {
+        return kind << CELL_BITS | cell;
+    }
+
+    static int kind(int event) {
+        return event >>> CELL_BITS;
+    }
+
+    static int cell(int event) {
+        return event & CELL_MASK;
+    }
+
+    // No allocation, no I/O, just a few ints into the array, so a click costs the same recorded or not.
+    public synchronized void left(int cell) {
+        room(1);
+        filling[used++] = event(LEFT, cell);
+    }
+
+    public synchronized void right(int cell) {
+        room(1);
+        filling[used++] = event(RIGHT, cell);
+    }
+
+    public synchronized void reset(Topology.Shape shape, int rows, int cols, int mines, int lives, long seed) {
+        room(7);
+        filling[used++] = event(RESET, shape.ordinal());
+        filling[used++] = rows;
+        filling[used++] = cols;
+        filling[used++] = mines;
+        filling[used++] = lives;
+        filling[used++] = (int) (seed >>> 32);
+        filling[used++] = (int) seed;
+    }
+
+    public synchronized void opened(int opening, long seed) {
+        room(3);
+        filling[used++] = event(OPENED, opening);
+        filling[used++] = (int) (seed >>> 32);
+        filling[used++] = (int) seed;
+    }
+
+    public synchronized void resume() {
+        room(1);
+        filling[used++] = event(RESUME, 0);
+    }
+
+    public synchronized void rolled(double roll) {
+        long bits = Double.doubleToLongBits(roll);
+        room(3);
+        filling[used++] = event(ROLL, 0);
+        filling[used++] = (int) (bits >>> 32);
+        filling[used++] = (int) bits;
+    }
+
+    private void room(int ints) {
+        if (used + ints > filling.length) { // Only if the writer's fallen way behind, e.g. auto-play on a huge board.
+            filling = Arrays.copyOf(filling, filling.length * 2);
+        }
+        if (used + ints > CAPACITY / 2) {
+            notifyAll(); // Get the writer going early.
+        }
+    }
+
+    public void flush() {
+        synchronized (write_guard) { // Swapping in here too keeps batches in the order they were recorded.
+            int[] events;
+            int count;
+            synchronized (this) {
+                events = filling;
+                count = used;
+                filling = spare;
+                used = 0;
+            }
+            try {
+                write(events, count);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            synchronized (this) {
+                spare = events.length == CAPACITY ? events : new int[CAPACITY]; // Don't hang on to a grown one.
+            }
+        }
+    }
+
+    private void write(int[] events, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+        int needed = (count + 2) * Integer.BYTES;
+        if (bytes.capacity() < needed) {
+            bytes = ByteBuffer.allocateDirect(needed);
+        }
+        bytes.clear();
+        if (fresh) {
+            bytes.putInt(MAGIC).putInt(VERSION);
+        } else if (!upgraded) {
+            upgrade();
+        }
+        upgraded = true;
+        bytes.asIntBuffer().put(events, 0, count);
+        bytes.position(bytes.position() + count * Integer.BYTES);
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    // A version 1 log only lacks ROLL events, so carrying on appending to it just means bumping the version in its header.
+    private void upgrade() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+            header.flip();
+            if (header.remaining() == 8 && header.getInt() == MAGIC && header.getInt() < VERSION) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, VERSION), 4);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    wait(FLUSH_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    public static int[] read(Path path) throws IOException { // Everything after the header, a torn last event gets dropped by Replay.
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() > VERSION) {
+            throw new IOException(path + " isn't a replay log this version can read");
+        }
+        int[] events = new int[buffer.remaining() / Integer.BYTES];
+        buffer.asIntBuffer().get(events);
+        return events;
+    }
+}
+
+class Replay { // Plays a recorded event stream back into Sessions, as fast as it likes or a step at a time.
+    static final int SNAPSHOT_EVERY = 256; // Events between kept states, seeking replays at most this many.
+
+    final int[] log;
+    private int position = 0; // Next int to read.
+    private int step = 0; // Events applied so far.
+    Session session = null;
+    int games = 0;
+    private final ArrayList<int[]> marks = new ArrayList<>(); // {step, position, game} for each snapshot.
+    private final ArrayList<SaveFile> snapshots = new ArrayList<>();
+    private final ArrayList<Consumer<Session>> finished = new ArrayList<>();
+    private boolean seeking = false; // Games skipped over by a seek aren't reported.
+    private double recorded_roll = -1; // The ROLL that came with the click being played, -1 if none did.
+    private final DoubleSupplier replayed_roll = this::replayedRoll;
+
+    Replay(int[] log) {
+        this.log = log;
+    }
+
+    public void onFinished(Consumer<Session> listener) { // Told about every game that ends, in order.
+        finished.add(listener);
+    }
+
+    public int step() {
+        return step;
+    }
+
+    public boolean done() {
+        return position >= log.length || length(log[position]) > log.length - position;
+    }
+
+    private static int length(int event) {
+        return switch (ReplayLog.kind(event)) {
+            case ReplayLog.RESET -> 7;
+            case ReplayLog.OPENED, ReplayLog.ROLL -> 3;
+            default -> 1;
+        };
+    }
+
+    private static long seed(int high, int low) {
+        return (long) high << 32 | (low & 0xFFFFFFFFL);
+    }
+
+    public boolean next() { // Applies one event, false once the log's run out.
+        if (done()) {
+            return false;
+        }
+        if (step % SNAPSHOT_EVERY == 0 && step / SNAPSHOT_EVERY == marks.size()) {
+            marks.add(new int[] {step, position, games});
+            snapshots.add(session == null ? null : new SaveFile(session));
+        }
+        int event = log[position];
+        position += length(event);
+        step++;
+        switch (ReplayLog.kind(event)) {
+            case ReplayLog.RESET -> {
+                int at = position - 6;
+                Topology.Shape shape = Topology.Shape.values()[ReplayLog.cell(event)];
+                session = new Session(new Topology(shape, log[at], log[at + 1]), log[at + 2], seed(log[at + 4], log[at + 5]));
+                session.lives = log[at + 3];
+                games++;
+            }
+            case ReplayLog.LEFT -> {
+                if (session == null) { // The log starts part way through a game, e.g. resumed from an older save.
+                    return true; // Its OPENED, if any, gets skipped as a lone one.
+                }
+                boolean ending = session.running;
+                if (session.first_turn && !done() && ReplayLog.kind(log[position]) == ReplayLog.OPENED) {
+                    session.opening = ReplayLog.cell(log[position]); // The board it really got, generator or not.
+                    session.seed = seed(log[position + 1], log[position + 2]);
+                    position += 3;
+                }
+                nextRoll();
+                session.leftClick(ReplayLog.cell(event));
+                report(ending);
+            }
+            case ReplayLog.RIGHT -> {
+                if (session == null) {
+                    return true;
+                }
+                boolean ending = session.running;
+                nextRoll();
+                session.rightClick(ReplayLog.cell(event));
+                report(ending);
+            }
+            default -> { } // RESUME carries on with the session as it is (if any), a lone OPENED has nothing to go with.
+        }
+        return true;
+    }
+
+    private void nextRoll() { // Picks up the ROLL that follows a click, if there is one, for the session to use.
+        recorded_roll = -1;
+        if (!done() && ReplayLog.kind(log[position]) == ReplayLog.ROLL) {
+            recorded_roll = Double.longBitsToDouble(seed(log[position + 1], log[position + 2]));
+            position += 3;
+        }
+        session.rolls = replayed_roll;
+    }
+
+    private double replayedRoll() { // Version 1 logs never recorded the roll, it came from the board's seed back then.
+        return recorded_roll >= 0 ? recorded_roll : new SplittableRandom(session.board.seed).split().nextDouble();
+    }
+
+    private void report(boolean was_running) {
+        if (was_running && !session.running && !seeking) {
+            for (Consumer<Session> listener : finished) {
+                listener.accept(session);
+            }
+        }
+    }
+
+    public void run() { // Full speed to the end.
+        while (next()) {
+        }
+    }
+
+    public void seek(int target) { // Back to the nearest snapshot at or before target, then forward from there.
+        if (target < step) {
+            int mark = Math.min(target / SNAPSHOT_EVERY, marks.size() - 1);
+            step = marks.get(mark)[0];
+            position = marks.get(mark)[1];
+            games = marks.get(mark)[2];
+            SaveFile snapshot = snapshots.get(mark);
+            session = snapshot == null ? null : snapshot.restore();
+        }
+        seeking = true;
+        while (step < target && next()) {
+        }
+        seeking = false;
+    }
+
+    // java -jar covidsweeper.jar replay <log> - plays every game in it, prints how each one ended.
+    static void run(String[] args) throws IOException {
+        Replay replay = new Replay(ReplayLog.read(Paths.get(args[1])));
+        replay.onFinished(session -> System.out.println("GAME " + replay.games + ": " + session.rows + "x" + session.cols
+                + ", " + session.mines + " mines, seed " + session.seed + ", score " + session.score + ", "
+                + (session.victory ? "won" : session.infected ? "out of health" : "lost the roll")));
+        long began = System.nanoTime();
+        replay.run();
+        System.out.println("REPLAY: " + replay.step + " events, " + replay.games + " games in " + (System.nanoTime() - began) / 1_000_000 + "ms");
+    }
+}
+
+class Generator { // Makes boards that can be cleared from the first click without ever having to guess, built ahead of time.
+    static final long AHEAD_MILLIS = 2000; // Boards built in the background can take their time.
+    static final int SEARCH_CELLS = 1 << 18; // Past this one candidate can't be checked in time, just keep the opening safe.
+    static final double SEARCH_DENSITY = 0.25; // Past this guess-free boards hardly ever turn up, so don't spend the time looking.
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L; // Spreads candidate seeds out.
+
+    final Topology topology;
+    final int rows;
+    final int cols;
+    final int mines;
+    final int start; // The middle cell, the next board gets built around it before anyone clicks.
+    private final SplittableRandom seeds;
+    private Search ahead;
+    private CompletableFuture<Board> ahead_board;
+
+    Generator(Topology topology, int mines, long seed) {
+        this.topology = topology;
+        this.rows = topology.rows;
+        this.cols = topology.cols;
+        this.mines = mines;
+        this.start = (rows / 2) * cols + cols / 2;
+        this.seeds = new SplittableRandom(seed);
+        buildAhead();
+    }
+
+    public boolean makes(Topology topology, int mines) {
+        return this.topology.same(topology.shape, topology.rows, topology.cols) && this.mines == mines;
+    }
+
+    // A board with the first click already opened up. This runs on the event thread, so it never waits on the search:
+    // the board built ahead only gets used once it's finished and the click lands in its opening. Otherwise the click
+    // gets a plain board with just the opening safe, and the one built ahead is kept for the next game.
+    public Board boardFor(int cell) {
+        if (ahead_board.isDone()) {
+            Board board = ahead_board.join();
+            if (board.isRevealed(cell) && (cell == start || ahead.solved())) {
+                ahead.report();
+                buildAhead(); // Ready for the next game.
+                return board;
+            }
+        }
+        System.out.println("GENERATOR: " + (ahead_board.isDone() ? "Clicked outside the opening" : "Still searching")
+                + ", only the opening is safe this time.");
+        Board board = new Board(topology);
+        board.placeMines(mines, seeds.nextLong(), cell);
+        board.countAllMines();
+        board.reveal(cell);
+        return board;
+    }
+
+    public void cancel() {
+        ahead.hurry(0);
+    }
+
+    private boolean worthSearching() {
+        return rows * cols <= SEARCH_CELLS && mines <= rows * cols * SEARCH_DENSITY;
+    }
+
+    private void buildAhead() {
+        // Only half the cores, the game in progress still needs some.
+        ahead = new Search(start, seeds.nextLong(), AHEAD_MILLIS, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        ahead_board = CompletableFuture.supplyAsync(ahead::build);
+    }
+
+    private class Search { // Candidate boards for one opening, checked in parallel until one passes or time's up.
+        final int opening;
+        final long seed;
+        final int workers;
+        final long began = System.nanoTime();
+        private volatile long deadline;
+        private volatile boolean found = false;
+        private final AtomicInteger tries = new AtomicInteger();
+        private long took = 0;
+        private long best_seed; // Guarded by this.
+        private int best_left = Integer.MAX_VALUE;
+
+        Search(int opening, long seed, long millis, int workers) {
+            this.opening = opening;
+            this.seed = seed;
+            this.workers = workers;
+            this.deadline = began + millis * 1_000_000;
+            this.best_seed = seed;
+        }
+
+        void hurry(long millis) { // Pulls the deadline in, never pushes it out.
+            deadline = Math.min(deadline, System.nanoTime() + millis * 1_000_000);
+        }
+
+        boolean solved() {
+            return found;
+        }
+
+        Board build() {
+            if (worthSearching()) {
+                IntStream.range(0, workers).parallel().forEach(w -> work());
+            }
+            Board board = new Board(topology); // Rebuilt from the winning seed, the checked copy got played on.
+            board.placeMines(mines, bestSeed(), opening);
+            board.countAllMines();
+            board.reveal(opening);
+            took = (System.nanoTime() - began) / 1_000_000;
+            return board;
+        }
+
+        private void work() {
+            while (!found && System.nanoTime() < deadline) {
+                long candidate = seed + tries.getAndIncrement() * GOLDEN;
+                offer(candidate, play(candidate));
+            }
+        }
+
+        private int play(long candidate) { // Safe cells the solver couldn't get to, 0 means no guessing needed.
+            Board board = new Board(topology);
+            board.placeMines(mines, candidate, opening);
+            board.countAllMines();
+            board.reveal(opening);
+            Solver solver = new Solver(board);
+            int safe_cells = board.size - board.mine_count;
+            while (board.revealed_safe < safe_cells && !found && System.nanoTime() < deadline && solver.solve()) {
+                for (int i = solver.nextMine(0); i >= 0; i = solver.nextMine(i + 1)) {
+                    board.toggleFlag(i);
+                }
+                for (int i = solver.nextSafe(0); i >= 0; i = solver.nextSafe(i + 1)) {
+                    board.reveal(i);
+                }
+            }
+            return safe_cells - board.revealed_safe;
+        }
+
+        private synchronized void offer(long candidate, int left) {
+            if (left < best_left) { // The closest miss is the fallback if nothing gets all the way.
+                best_left = left;
+                best_seed = candidate;
+            }
+            if (left == 0) {
+                found = true;
+            }
+        }
+
+        private synchronized long bestSeed() {
+            return best_seed;
+        }
+
+        void report() {
+            if (found) {
+                System.out.println("GENERATOR: Guess-free board after " + tries.get() + " tries, " + took + "ms");
+            } else if (tries.get() == 0) {
+                System.out.println("GENERATOR: Board too big or too crowded to check, only the opening is safe.");
+            } else {
+                System.out.println("GENERATOR: No guess-free board in " + tries.get() + " tries, this one might need a guess.");
+            }
+        }
+    }
+}
+
+final class Theme { // Every color, font and fixed string the views draw with, made once and shared by everything.
+    // Themes never change once made. Switching swaps which one is current, the views notice and redraw their tiles.
+    static final Theme CLASSIC = new Theme("Classic", new Color(0x555555), new Color(171, 175, 172),
+            new Color(236, 158, 158), new Color(0xE39056), new Color(0x8BD758), new Color(0xC2DEFF),
+            new Color(97, 110, 127), UIManager.getColor("Label.foreground"), new Color(0x8BD758),
+            Color.white, Color.orange, Color.red);
+    static final Theme NIGHT = new Theme("Night", new Color(0x1E1F22), new Color(0x4A4E55),
+            new Color(0x8C4A4A), new Color(0xB5652F), new Color(0x4F8A33), new Color(0x2C3E55),
+            new Color(0x15171A), new Color(0xD8DEE9), new Color(0x8BD758),
+            new Color(0xD8DEE9), new Color(0xE0A040), new Color(0xE05050));
+    private static final Theme[] THEMES = {CLASSIC, NIGHT};
+    static Theme current = CLASSIC; // Only touched on the event thread.
+
+    // The same whatever the colors.
+    static final String[] COUNT_TEXT = {"", "1", "2", "3", "4", "5", "6", "7", "8"};
+    static final String MINE_TEXT = "\uD83D\uDCA3";
+    static final Font TILE_FONT = UIManager.getFont("Label.font");
+    static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 18);
+    static final Font HEALTH_FONT = new Font("Arial", Font.ITALIC, 18);
+    private static final String[] CHANCE_TEXT = new String[Session.LIVES + 1]; // Health only goes up a whole life at a time.
+
+    static {
+        for (int health = 0; health <= Session.LIVES; health++) {
+            CHANCE_TEXT[health] = "Infection Chance: " + (double) health / Session.LIVES * 100 + "%";
+        }
+    }
+
+    final String name;
+    final Color background;
+    final Color covered;
+    final Color flagged;
+    final Color mine;
+    final Color saved; // A flagged mine once the game is over.
+    final Color uncovered;
+    final Color grid;
+    final Color text; // Counts on the tiles.
+    final Color marker; // Hint outline and the start dot.
+    final Color score;
+    final Color health;
+    final Color certain; // Health once there's no coming back.
+
+    private Theme(String name, Color background, Color covered, Color flagged, Color mine, Color saved, Color uncovered,
+                  Color grid, Color text, Color marker, Color score, Color health, Color certain) {
+        this.name = name;
+        this.background = background;
+        this.covered = covered;
+        this.flagged = flagged;
+        this.mine = mine;
+        this.saved = saved;
+        this.uncovered = uncovered;
+        this.grid = grid;
+        this.text = text;
+        this.marker = marker;
+        this.score = score;
+        this.health = health;
+        this.certain = certain;
+    }
+
+    static Theme next() {
+        for (int i = 0; i < THEMES.length; i++) {
+            if (THEMES[i] == current) {
+                return THEMES[(i + 1) % THEMES.length];
+            }
+        }
+        return CLASSIC;
+    }
+
+    static String chanceText(double health, int lives) { // The label for a health, built ahead of time for the usual lives.
+        int whole = (int) health;
+        if (lives == Session.LIVES && whole == health && whole >= 0 && whole <= lives) {
+            return CHANCE_TEXT[whole];
+        }
+        return "Infection Chance: " + health / lives * 100 + "%";
+    }
+}
+
+class Readout extends JComponent { // A one line label for text that changes every click, setting it makes no garbage.
+    private char[] text = new char[64];
+    private char[] scratch = new char[64];
+    private int length = 0;
+    private final boolean right; // Right aligned, otherwise left.
+
+    Readout(boolean right) {
+        this.right = right;
+        setOpaque(false);
+    }
+
+    public void setText(String value) {
+        int n = value.length();
+        if (n > scratch.length) {
+            scratch = new char[n];
+        }
+        value.getChars(0, n, scratch, 0);
+        swapIn(n);
+    }
+
+    public void setNumber(String prefix, int value) { // prefix followed by value, same as prefix + value.
+        int n = prefix.length();
+        prefix.getChars(0, n, scratch, 0);
+        if (value < 0) {
+            scratch[n++] = '-';
+        }
+        long digits = Math.abs((long) value);
+        int end = n + 1;
+        for (long rest = digits / 10; rest != 0; rest /= 10) {
+            end++;
+        }
+        for (int i = end - 1; i >= n; i--) { // Filled in from the end, lowest digit first.
+            scratch[i] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        swapIn(end);
+    }
+
+    private void swapIn(int n) { // Only repaints if the text actually changed.
+        if (n == length && Arrays.equals(text, 0, n, scratch, 0, n)) {
+            return;
+        }
+        char[] shown = scratch;
+        scratch = text;
+        text = shown;
+        length = n;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics metrics = getFontMetrics(getFont());
+        return new Dimension(metrics.charsWidth(text, 0, length), metrics.getHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(getFont());
+        g2.setColor(getForeground());
+        FontMetrics metrics = g2.getFontMetrics();
+        int x = right ? getWidth() - metrics.charsWidth(text, 0, length) : 0;
+        g2.drawChars(text, 0, length, x, (getHeight() - metrics.getHeight()) / 2 + metrics.getAscent());
+    }
+}
+
+class BoardView extends JComponent implements Scrollable { // The whole minefield as one component, painted from the Board.
+    static final int CELL = 25; // Smallest size a cell gets drawn at, in pixels.
+    static final int COVERED = 9; // Tiles 0-8 are uncovered cells by their count.
+    static final int FLAGGED = 10;
+    static final int MINE = 11;
+    static final int SAVED = 12; // A flagged mine once the game is over.
+
+    private Board board;
+    private boolean exposed = false; // Once the game is over the mines get shown.
+    private int hint = -1; // Cell outlined as a hint, -1 for none.
+    private int start = -1; // Cell marked as the best first click, -1 for none.
+    private long clicked_at = 0; // System.nanoTime() of a click that hasn't been painted yet, 0 for none.
+    private static final Metrics.Histogram PAINT_TIME = Metrics.histogram("click.to_paint_us");
+    private final BufferedImage[] tiles = new BufferedImage[13]; // Every cell is one of these, drawn once per size and theme.
+    private Theme theme = Theme.current; // What the tiles were drawn with.
+    private final Rectangle clip = new Rectangle(); // Reused every paint.
+    private int cell_width = CELL;
+    private int cell_height = CELL;
+    // Cells changed since the last flush, kept as the box around them so a click is one repaint however many it touched.
+    private int changed_top = Integer.MAX_VALUE;
+    private int changed_left = Integer.MAX_VALUE;
+    private int changed_bottom = -1;
+    private int changed_right = -1;
+
+    BoardView(Board board) {
+        this.board = board;
+        setOpaque(true);
+        setBackground(theme.background);
+        setPreferredSize(boardSize());
+    }
+
+    private Dimension boardSize() {
+        return new Dimension(board.cols * CELL + (hex() ? CELL / 2 : 0), board.rows * CELL);
+    }
+
+    private boolean hex() {
+        return board.topology.shape == Topology.Shape.HEX;
+    }
+
+    private int x(int row, int col) { // Left edge of a cell, hex boards push odd rows half a cell right.
+        return col * cell_width + (hex() && (row & 1) != 0 ? cell_width / 2 : 0);
+    }
+
+    public void setBoard(Board board) {
+        this.board = board;
+        exposed = false;
+        hint = -1;
+        start = -1;
+        clearChanges(); // The whole thing gets repainted anyway.
+        setPreferredSize(boardSize());
+        fitCells(getWidth(), getHeight());
+        revalidate();
+        repaint();
+    }
+
+    public void setHint(int cell) {
+        if (hint >= 0) {
+            repaintCell(hint);
+        }
+        hint = cell;
+        if (hint >= 0) {
+            repaintCell(hint);
+        }
+    }
+
+    public void setStart(int cell) {
+        if (start >= 0) {
+            repaintCell(start);
+        }
+        start = cell;
+        if (start >= 0) {
+            repaintCell(start);
+        }
+    }
+
+    public void clickedAt(long nanos) {
+        clicked_at = nanos;
+    }
+
+    public void setExposed(boolean exposed) {
+        this.exposed = exposed;
+    }
+
+    public int cellAt(int x, int y) { // -1 if the point isn't over a cell.
+        if (x < 0 || y < 0) {
+            return -1;
+        }
+        int row = y / cell_height;
+        if (row >= board.rows || x < x(row, 0)) {
+            return -1;
+        }
+        int col = (x - x(row, 0)) / cell_width;
+        if (col >= board.cols) {
+            return -1;
+        }
+        return board.index(row, col);
+    }
+
+    public void repaintCell(int i) {
+        repaint(x(board.rowOf(i), board.colOf(i)), board.rowOf(i) * cell_height, cell_width, cell_height);
+    }
+
+    public void changed(int i) { // Marks a cell for the next flushChanges().
+        int row = board.rowOf(i);
+        int col = board.colOf(i);
+        changed_top = Math.min(changed_top, row);
+        changed_bottom = Math.max(changed_bottom, row);
+        changed_left = Math.min(changed_left, col);
+        changed_right = Math.max(changed_right, col);
+    }
+
+    public void changedAll() {
+        changed_top = 0;
+        changed_left = 0;
+        changed_bottom = board.rows - 1;
+        changed_right = board.cols - 1;
+    }
+
+    public void flushChanges() { // One repaint for everything marked, Swing only paints the part of it that's on screen.
+        if (changed_bottom < 0) {
+            return;
+        }
+        repaint(changed_left * cell_width, changed_top * cell_height,
+                (changed_right - changed_left + 1) * cell_width + (hex() ? cell_width / 2 : 0),
+                (changed_bottom - changed_top + 1) * cell_height);
+        clearChanges();
+    }
+
+    private void clearChanges() {
+        changed_top = Integer.MAX_VALUE;
+        changed_left = Integer.MAX_VALUE;
+        changed_bottom = -1;
+        changed_right = -1;
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        fitCells(width, height);
+    }
+
+    private void fitCells(int width, int height) {
+        // Small boards stretch to fill the window like the old grid did, big ones scroll.
+        int new_width = Math.max(CELL, hex() ? 2 * width / (2 * board.cols + 1) : width / board.cols);
+        int new_height = Math.max(CELL, height / board.rows);
+        if (new_width != cell_width || new_height != cell_height) {
+            cell_width = new_width;
+            cell_height = new_height;
+            Arrays.fill(tiles, null);
+        }
+    }
+
+    private int tileOf(int i) {
+        if (board.isRevealed(i)) {
+            return board.isMine(i) ? MINE : board.getCount(i);
+        }
+        if (exposed && board.isMine(i)) {
+            return board.isFlagged(i) ? SAVED : MINE;
+        }
+        return board.isFlagged(i) ? FLAGGED : COVERED;
+    }
+
+    private BufferedImage tile(int kind) {
+        if (tiles[kind] == null) {
+            tiles[kind] = drawTile(theme, kind, cell_width, cell_height);
+        }
+        return tiles[kind];
+    }
+
+    static BufferedImage drawTile(Theme theme, int kind, int cell_width, int cell_height) {
+        BufferedImage image = new BufferedImage(cell_width, cell_height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        String text = "";
+        if (kind == COVERED) {
+            g.setColor(theme.covered);
+        } else if (kind == FLAGGED) {
+            g.setColor(theme.flagged);
+        } else if (kind == MINE) {
+            g.setColor(theme.mine);
+            text = Theme.MINE_TEXT;
+        } else if (kind == SAVED) {
+            g.setColor(theme.saved);
+        } else {
+            g.setColor(theme.uncovered);
+            text = Theme.COUNT_TEXT[kind];
+        }
+        g.fillRect(0, 0, cell_width, cell_height);
+        g.setColor(theme.grid);
+        g.drawRect(0, 0, cell_width - 1, cell_height - 1);
+        if (!text.isEmpty()) {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(Theme.TILE_FONT);
+            g.setColor(theme.text);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(text, (cell_width - metrics.stringWidth(text)) / 2,
+                    (cell_height - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (theme != Theme.current) { // Switched since the tiles were drawn.
+            theme = Theme.current;
+            Arrays.fill(tiles, null);
+            setBackground(theme.background);
+        }
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip); // Left as the whole view if there's no clip.
+        g.setColor(theme.background);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        // Only the cells under the clip get drawn, so a huge board costs as much as what's on screen.
+        int first_row = clip.y / cell_height;
+        int last_row = Math.min(board.rows - 1, (clip.y + clip.height - 1) / cell_height);
+        int first_col = Math.max(0, (clip.x - (hex() ? cell_width / 2 : 0)) / cell_width);
+        int last_col = Math.min(board.cols - 1, (clip.x + clip.width - 1) / cell_width);
+        for (int row = first_row; row <= last_row; row++) {
+            for (int col = first_col; col <= last_col; col++) {
+                g.drawImage(tile(tileOf(board.index(row, col))), x(row, col), row * cell_height, null);
+            }
+        }
+        int hint_x = hint >= 0 ? x(board.rowOf(hint), board.colOf(hint)) : 0;
+        if (hint >= 0 && clip.intersects(hint_x, board.rowOf(hint) * cell_height, cell_width, cell_height)) {
+            g.setColor(theme.marker);
+            g.drawRect(hint_x + 1, board.rowOf(hint) * cell_height + 1, cell_width - 3, cell_height - 3);
+        }
+        if (start >= 0 && !board.isRevealed(start) && !board.isFlagged(start)) { // A dot where the board's already waiting.
+            int size = Math.min(cell_width, cell_height) / 3;
+            g.setColor(theme.marker);
+            g.fillOval(x(board.rowOf(start), board.colOf(start)) + (cell_width - size) / 2,
+                    board.rowOf(start) * cell_height + (cell_height - size) / 2, size, size);
+        }
+        if (clicked_at != 0) {
+            PAINT_TIME.since(clicked_at);
+            clicked_at = 0;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? cell_width : cell_height;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visible.width - cell_width : visible.height - cell_height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+}
+
+class Session { // The rules of one game with nothing on screen. Game shows one, the Simulator plays millions.
+    static final int LIVES = 6; // Mines you can set off and keep going, the next one is certain infection.
+    static final int SAFE_POINTS = 10;
+    static final int MINE_POINTS = -5;
+
+    final Topology topology;
+    final int rows;
+    final int cols;
+    final int mines;
+    long seed; // Everything about the board comes from this and the first click.
+    Board board; // Empty, and shared with its topology's other games (see Topology.blank()), until the first click.
+    Generator generator = null; // Where no-guess boards come from, null for plain ones.
+    int opening = -1; // Where a plain board's opening goes, -1 for wherever the first click lands.
+    int lives = LIVES;
+    int score = 0;
+    double health = 0; // Or lack thereof.
+    boolean running = true; //You can only interact with the minesweeper grid if you haven't lost/won.
+    boolean victory = false;
+    boolean infected = false; // Ran out of health, rather than losing the final roll.
+    boolean first_turn = true; // No mines yet, they go down around wherever the first click lands.
+    DoubleSupplier rolls = Math::random; // The final infection roll, the simulator swaps in its own seeded one.
+    double roll = -1; // What it came up with, -1 until the game gets that far. Replays are told it.
+
+    Session(int rows, int cols, int mines, long seed) {
+        this(Topology.square(rows, cols), mines, seed);
+    }
+
+    Session(Topology topology, int mines, long seed) {
+        this.topology = topology;
+        this.rows = topology.rows;
+        this.cols = topology.cols;
+        this.mines = mines;
+        this.seed = seed;
+        this.board = topology.blank();
+    }
+
+    public double infectionChance() { // In percent.
+        return health / lives * 100;
+    }
+
+    // Returns how many cells were uncovered, the ones a safe click opened are listed by board.revealedCell().
+    // The first click swaps in a whole new board instead.
+    public int leftClick(int cell) {
+        if (!running || board.isRevealed(cell) || board.isFlagged(cell)) {
+            return 0;
+        }
+        int uncovered;
+        if (first_turn) {
+            populate(cell);
+            uncovered = board.revealed_safe;
+            score += SAFE_POINTS;
+        } else if (board.isMine(cell)) { //If it's a bomb
+            board.uncover(cell);
+            uncovered = 1;
+            score += MINE_POINTS;
+            getHurt();
+        } else { // If it isn't (A cell).
+            uncovered = board.reveal(cell);
+            score += SAFE_POINTS;
+        }
+        victoryCheck();
+        return uncovered;
+    }
+
+    public boolean rightClick(int cell) { // Returns whether the flag changed.
+        if (!running || board.isRevealed(cell)) {
+            return false;
+        }
+        if (first_turn && board == topology.blank()) {
+            board = new Board(topology);
+        }
+        board.toggleFlag(cell);
+        victoryCheck();
+        return true;
+    }
+
+    private void populate(int cell) {
+        Board placed;
+        if (generator != null) {
+            placed = generator.boardFor(cell);
+        } else {
+            int centre = opening >= 0 ? opening : cell;
+            placed = new Board(topology);
+            placed.placeMines(mines, seed, centre);
+            placed.countAllMines();
+            placed.reveal(centre);
+        }
+        for (int i = 0; i < board.size; i++) { // Flags put down before the first click stay put.
+            if (board.isFlagged(i)) {
+                placed.toggleFlag(i);
+            }
+        }
+        board = placed;
+        seed = board.seed;
+        first_turn = false;
+    }
+
+    private void getHurt() {
+        if (health >= lives) { //The player has 6+1 chances when they get hit by bombs
+            infected = true;
+            running = false; //The game is already over, and the player lost.
+        } else {
+            health += 1;
+        }
+    }
+
+    private void victoryCheck() {
+        // So long as the player has flagged all non-triggered mines, they can still win.
+        // Before the first click there are no mines at all, so "every mine flagged" would be true straight away.
+        if (running && !first_turn && board.allMinesFlagged()) {
+            roll = rolls.getAsDouble();
+            double chance = 100 * roll; //If the random number is larger than whatever percentage you're at.
+            victory = chance > infectionChance(); //You aren't infected... this time.
+            running = false;
+        }
+    }
+}
+
+interface Strategy { // How a simulated player gets through a game, from the first click to the end.
+    void play(Session session, SplittableRandom rand);
+}
+
+class Simulator extends RecursiveTask<Simulator.Tally> { // Plays games headless across every core and adds up how they went.
+    static final int LEAF_GAMES = 1024; // Games one task plays itself before splitting stops.
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    final Topology topology; // Shared by every game, it never changes.
+    final int mines;
+    final int lives;
+    final Strategy strategy;
+    final long seed;
+    final long from; // Game numbers this task covers, games are numbered so results don't depend on the split.
+    final long to;
+
+    Simulator(Topology topology, int mines, int lives, Strategy strategy, long seed, long from, long to) {
+        this.topology = topology;
+        this.mines = mines;
+        this.lives = lives;
+        this.strategy = strategy;
+        this.seed = seed;
+        this.from = from;
+        this.to = to;
+    }
+
+    static Strategy strategy(String name) {
+        return switch (name) {
+            case "random" -> Simulator::clickAnywhere;
+            case "solver" -> Simulator::solveThenGuess;
+            default -> throw new IllegalArgumentException("No strategy called " + name + ", try random or solver.");
+        };
+    }
+
+    static void clickAnywhere(Session session, SplittableRandom rand) { // Never flags, so it only ends by running out of mines or health.
+        while (session.running) {
+            session.leftClick(coveredCell(session.board, rand));
+        }
+    }
+
+    static void solveThenGuess(Session session, SplittableRandom rand) { // Plays what the solver proves, guesses when it can't.
+        session.leftClick(coveredCell(session.board, rand));
+        Solver solver = new Solver(session.board); // After the first click, that's when the board turns up.
+        while (session.running) {
+            if (!solver.solve()) {
+                session.leftClick(coveredCell(session.board, rand));
+                continue;
+            }
+            for (int i = solver.nextMine(0); i >= 0 && session.running; i = solver.nextMine(i + 1)) {
+                session.rightClick(i);
+            }
+            for (int i = solver.nextSafe(0); i >= 0 && session.running; i = solver.nextSafe(i + 1)) {
+                session.leftClick(i);
+            }
+        }
+    }
+
+    static int coveredCell(Board board, SplittableRandom rand) { // A random cell that isn't uncovered or flagged.
+        for (int tries = 0; tries < 16; tries++) {
+            int cell = rand.nextInt(board.size);
+            if (!board.isRevealed(cell) && !board.isFlagged(cell)) {
+                return cell;
+            }
+        }
+        int start = rand.nextInt(board.size); // Mostly uncovered by now, walk round from somewhere random.
+        for (int n = 0; n < board.size; n++) {
+            int cell = (start + n) % board.size;
+            if (!board.isRevealed(cell) && !board.isFlagged(cell)) {
+                return cell;
+            }
+        }
+        return start;
+    }
+
+    @Override
+    protected Tally compute() {
+        if (to - from <= LEAF_GAMES) {
+            return playAll();
+        }
+        long middle = (from + to) >>> 1;
+        Simulator left = new Simulator(topology, mines, lives, strategy, seed, from, middle);
+        left.fork();
+        Tally tally = new Simulator(topology, mines, lives, strategy, seed, middle, to).compute();
+        tally.add(left.join()); // Each task fills its own tally, nothing's shared until they're merged here.
+        return tally;
+    }
+
+    private Tally playAll() {
+        SplittableRandom rand = new SplittableRandom(seed + from * GOLDEN);
+        Tally tally = new Tally(topology.size, lives);
+        for (long game = from; game < to; game++) {
+            Session session = new Session(topology, mines, rand.nextLong());
+            session.lives = lives;
+            session.rolls = rand::nextDouble; // So a run's results only depend on its seed.
+            strategy.play(session, rand);
+            tally.count(session);
+        }
+        return tally;
+    }
+
+    static final class Tally {
+        final int cells;
+        long games = 0;
+        long wins = 0;
+        long infected = 0; // Ran out of health.
+        long unlucky = 0; // Cleared the board but lost the infection roll.
+        long score_total = 0;
+        double score_squares = 0;
+        int min_score = Integer.MAX_VALUE;
+        int max_score = Integer.MIN_VALUE;
+        final long[] scores; // Scores always move in steps of 5, from -5 * cells up to 10 * cells.
+        final long[] ended_at; // Games by how many hits they ended on.
+        final long[] won_at;
+
+        Tally(int cells, int lives) {
+            this.cells = cells;
+            scores = new long[3 * cells + 1];
+            ended_at = new long[lives + 1];
+            won_at = new long[lives + 1];
+        }
+
+        void count(Session session) {
+            games++;
+            if (session.victory) {
+                wins++;
+                won_at[(int) session.health]++;
+            } else if (session.infected) {
+                infected++;
+            } else {
+                unlucky++;
+            }
+            ended_at[(int) session.health]++;
+            score_total += session.score;
+            score_squares += (double) session.score * session.score;
+            min_score = Math.min(min_score, session.score);
+            max_score = Math.max(max_score, session.score);
+            scores[(session.score + 5 * cells) / 5]++;
+        }
+
+        void add(Tally other) {
+            games += other.games;
+            wins += other.wins;
+            infected += other.infected;
+            unlucky += other.unlucky;
+            score_total += other.score_total;
+            score_squares += other.score_squares;
+            min_score = Math.min(min_score, other.min_score);
+            max_score = Math.max(max_score, other.max_score);
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] += other.scores[i];
+            }
+            for (int i = 0; i < ended_at.length; i++) {
+                ended_at[i] += other.ended_at[i];
+                won_at[i] += other.won_at[i];
+            }
+        }
+
+        int percentile(double fraction) {
+            long wanted = (long) Math.ceil(fraction * games);
+            long seen = 0;
+            for (int i = 0; i < scores.length; i++) {
+                seen += scores[i];
+                if (seen >= Math.max(1, wanted)) {
+                    return i * 5 - 5 * cells;
+                }
+            }
+            return max_score;
+        }
+    }
+
+    static String report(Tally tally, String setup, long millis) {
+        StringBuilder out = new StringBuilder();
+        double mean = (double) tally.score_total / tally.games;
+        double spread = Math.sqrt(Math.max(0, tally.score_squares / tally.games - mean * mean));
+        out.append(setup).append('\n');
+        out.append(String.format("%d games in %.1fs (%.0f games/s)%n", tally.games, millis / 1000.0, tally.games * 1000.0 / Math.max(1, millis)));
+        out.append(String.format("Won            %10d  %6.2f%%%n", tally.wins, 100.0 * tally.wins / tally.games));
+        out.append(String.format("Out of health  %10d  %6.2f%%%n", tally.infected, 100.0 * tally.infected / tally.games));
+        out.append(String.format("Lost the roll  %10d  %6.2f%%%n", tally.unlucky, 100.0 * tally.unlucky / tally.games));
+        out.append(String.format("Score          mean %.1f, sd %.1f, min %d, p10 %d, median %d, p90 %d, max %d%n",
+                mean, spread, tally.min_score, tally.percentile(0.1), tally.percentile(0.5), tally.percentile(0.9), tally.max_score));
+        out.append("Mines hit at the end   games      share   win rate\n");
+        for (int hits = 0; hits < tally.ended_at.length; hits++) {
+            if (tally.ended_at[hits] == 0) {
+                continue;
+            }
+            out.append(String.format("%14d  %10d  %6.2f%%  %6.2f%%%n", hits, tally.ended_at[hits],
+                    100.0 * tally.ended_at[hits] / tally.games, 100.0 * tally.won_at[hits] / tally.ended_at[hits]));
+        }
+        return out.toString();
+    }
+
+    // java -jar covidsweeper.jar simulate [games] [rows] [cols] [mines] [random|solver] [lives] [seed] [square|torus|hex]
+    static void run(String[] args) {
+        long games = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int mines = args.length > 4 ? Integer.parseInt(args[4]) : 35;
+        String player = args.length > 5 ? args[5] : "solver";
+        int lives = args.length > 6 ? Integer.parseInt(args[6]) : Session.LIVES;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : new SplittableRandom().nextLong();
+        Topology.Shape shape = args.length > 8 ? Topology.shape(args[8]) : Topology.Shape.SQUARE;
+        String setup = String.format("%dx%d %s with %d mines, %s player, %d lives, seed %d, %d threads",
+                rows, cols, shape.name().toLowerCase(), mines, player, lives, seed, ForkJoinPool.commonPool().getParallelism() + 1);
+        long began = System.nanoTime();
+        Tally tally = new Simulator(new Topology(shape, rows, cols), mines, lives, strategy(player), seed, 0, games).invoke();
+        System.out.print(report(tally, setup, (System.nanoTime() - began) / 1_000_000));
+    }
+}
+
+class SweeperServer { // Lots of headless games at once over a small binary protocol on a local socket, for bots and load tests.
+    // Every message is a 16 byte frame, big endian, so nothing ever needs parsing past a switch.
+    // Request: op, shape, 2 unused, game id, then two ints that depend on the op:
+    //   NEW rows << 16 | cols, mines - starts a game on this connection (shape as Topology.Shape), the reply has its id
+    //   LEFT cell, RIGHT cell - the same clicks Session takes from the board view
+    //   END - the score goes to the leaderboard and the game is forgotten
+    // Reply: op, state bits (as in SaveFile), health, 0, game id, cells uncovered (1 if a flag changed), score.
+    // Bad requests get an ERROR reply and the connection carries on, so does a NEW that would go over either cell budget.
+    static final int FRAME = 16;
+    static final byte NEW = 1;
+    static final byte LEFT = 2;
+    static final byte RIGHT = 3;
+    static final byte END = 4;
+    static final byte ERROR = 127;
+    static final int MAX_SIDE = 1024; // Bots don't need bigger.
+    static final int MAX_GAMES = 1 << 16; // Per connection, even 1x1 games cost a session and a map entry.
+    // What the heap actually goes on is cells. Every game open on a connection counts its rows * cols against
+    // MAX_CELLS until END, and every connection on a shard against the shard's share of half the heap.
+    // A board is about 5.5 bytes a cell once the reveal queue has grown, BYTES_PER_CELL leaves room for the rest.
+    static final long MAX_CELLS = 1 << 24; // 16 full size games.
+    static final long BYTES_PER_CELL = 8;
+    static final int BUFFER_FRAMES = 256; // Requests read (and replies held) per connection at a time.
+    static final long LEADERBOARD_MILLIS = 250; // How often each shard hands its finished games over.
+    static final int TOP_SCORES = 10;
+
+    private static final Metrics.Counter REQUESTS = Metrics.counter("server.requests");
+    private static final Metrics.Counter GAMES = Metrics.counter("server.games");
+    private static final Metrics.Counter CONNECTIONS = Metrics.counter("server.connections");
+    private static final Metrics.Histogram SERVE_TIME = Metrics.histogram("server.batch_us");
+
+    final ServerSocketChannel listener;
+    private final Shard[] shards;
+    private final long shard_cells; // Each shard's budget.
+    private final Leaderboard leaderboard = new Leaderboard(TOP_SCORES); // Guarded by itself, only touched a batch at a time.
+    private long finished = 0; // Also guarded by leaderboard.
+
+    SweeperServer(int port, int shard_count) throws IOException {
+        listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        shards = new Shard[shard_count];
+        shard_cells = Runtime.getRuntime().maxMemory() / 2 / BYTES_PER_CELL / shard_count;
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < shard_count; i++) {
+            shards[i] = new Shard(i, seeds.split());
+        }
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            Thread thread = new Thread(shard, "server-shard-" + shard.number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread acceptor = new Thread(this::acceptLoop, "server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() { // Connections get dealt round the shards, a connection and its games never move after that.
+        int next = 0;
+        while (listener.isOpen()) {
+            try {
+                SocketChannel channel = listener.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                CONNECTIONS.increment();
+                shards[next].join(channel);
+                next = (next + 1) % shards.length;
+            } catch (IOException e) {
+                if (listener.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void record(ArrayList<Score> batch) { // One lock per shard per LEADERBOARD_MILLIS, not one per game.
+        synchronized (leaderboard) {
+            for (Score score : batch) {
+                leaderboard.offer(score);
+            }
+            finished += batch.size();
+        }
+        batch.clear();
+    }
+
+    public String report() {
+        synchronized (leaderboard) {
+            ArrayList<Score> top = leaderboard.top();
+            return finished + " games finished, best " + (top.isEmpty() ? "none yet" : top.get(0).name + " = " + top.get(0).score);
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final int number;
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_FRAMES * FRAME);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_FRAMES * FRAME);
+        final HashMap<Integer, Session> games = new HashMap<>();
+        int next_id = 1;
+        long cells = 0; // Of all its open games.
+
+        Connection(SocketChannel channel, int number) {
+            this.channel = channel;
+            this.number = number;
+        }
+    }
+
+    private final class Shard implements Runnable { // One selector thread and everything on its connections, nothing shared.
+        final int number;
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> joining = new ConcurrentLinkedQueue<>();
+        private final SplittableRandom seeds;
+        private final ArrayList<Score> finished = new ArrayList<>(); // Waiting to go to the leaderboard.
+        private Topology topology; // The last one made, most games on a shard are the same size.
+        private int connections = 0;
+        private long cells = 0; // Of every open game on every connection.
+        private long last_batch = System.nanoTime();
+
+        Shard(int number, SplittableRandom seeds) throws IOException {
+            this.number = number;
+            this.seeds = seeds;
+            this.selector = Selector.open();
+        }
+
+        void join(SocketChannel channel) {
+            joining.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select(LEADERBOARD_MILLIS);
+                    for (SocketChannel channel; (channel = joining.poll()) != null; ) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(channel, number + connections++ * shards.length));
+                    }
+                    for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+                                close(key, connection);
+                                continue;
+                            }
+                            serve(key, connection);
+                        } catch (IOException e) { // Only this client's problem.
+                            close(key, connection);
+                        } catch (OutOfMemoryError e) { // The budgets should stop this, but if not the rest of the shard carries on.
+                            System.err.println("SERVER: Out of memory, dropping connection " + connection.number
+                                    + " and its " + connection.games.size() + " games");
+                            close(key, connection);
+                        }
+                    }
+                    if (!finished.isEmpty() && System.nanoTime() - last_batch > LEADERBOARD_MILLIS * 1_000_000) {
+                        record(finished);
+                        last_batch = System.nanoTime();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void close(SelectionKey key, Connection connection) {
+            key.cancel();
+            cells -= connection.cells;
+            connection.cells = 0;
+            connection.games.clear();
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        // Answers every whole frame there's room to reply to, then writes. While replies are backed up
+        // nothing more gets read, so a client that stops reading can only ever cost its two buffers.
+        private void serve(SelectionKey key, Connection connection) throws IOException {
+            long began = System.nanoTime();
+            ByteBuffer in = connection.in;
+            ByteBuffer out = connection.out;
+            in.flip();
+            int served = 0;
+            while (in.remaining() >= FRAME && out.remaining() >= FRAME) {
+                handle(connection, in, out);
+                served++;
+            }
+            in.compact();
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            if (served > 0) {
+                SERVE_TIME.since(began);
+            }
+        }
+
+        private void handle(Connection connection, ByteBuffer in, ByteBuffer out) {
+            REQUESTS.increment();
+            byte op = in.get();
+            int shape = in.get();
+            in.getShort();
+            int id = in.getInt();
+            int x = in.getInt();
+            int y = in.getInt();
+            if (op == NEW) {
+                long size = (long) (x >>> 16) * (x & 0xFFFF); // Checked before anything gets made.
+                Session session = connection.games.size() >= MAX_GAMES || connection.cells + size > MAX_CELLS
+                        || cells + size > shard_cells ? null : newGame(shape, x >>> 16, x & 0xFFFF, y);
+                if (session == null) {
+                    reply(out, ERROR, null, id, 0);
+                    return;
+                }
+                GAMES.increment();
+                id = connection.next_id++;
+                connection.games.put(id, session);
+                connection.cells += size;
+                cells += size;
+                reply(out, NEW, session, id, 0);
+                return;
+            }
+            Session session = connection.games.get(id);
+            if (session == null || ((op == LEFT || op == RIGHT) && (x < 0 || x >= session.board.size))) {
+                reply(out, ERROR, null, id, 0);
+                return;
+            }
+            switch (op) {
+                case LEFT -> reply(out, LEFT, session, id, session.leftClick(x));
+                case RIGHT -> reply(out, RIGHT, session, id, session.rightClick(x) ? 1 : 0);
+                case END -> {
+                    connection.games.remove(id);
+                    connection.cells -= session.topology.size;
+                    cells -= session.topology.size;
+                    finished.add(new Score("Bot " + connection.number + "/" + id, session.score));
+                    reply(out, END, session, id, 0);
+                }
+                default -> reply(out, ERROR, null, id, 0);
+            }
+        }
+
+        private Session newGame(int shape, int rows, int cols, int mines) {
+            if (shape < 0 || shape >= Topology.Shape.values().length || rows < 1 || cols < 1 || rows > MAX_SIDE
+                    || cols > MAX_SIDE || mines < 0 || mines > rows * cols) {
+                return null;
+            }
+            Topology.Shape wanted = Topology.Shape.values()[shape];
+            if (topology == null || !topology.same(wanted, rows, cols)) {
+                if (wanted == Topology.Shape.TORUS && (rows < 3 || cols < 3)) {
+                    return null;
+                }
+                topology = new Topology(wanted, rows, cols);
+            }
+            return new Session(topology, mines, seeds.nextLong());
+        }
+
+        private void reply(ByteBuffer out, byte op, Session session, int id, int cells) {
+            out.put(op);
+            out.put(session == null ? 0 : (byte) ((session.running ? SaveFile.RUNNING : 0) | (session.victory ? SaveFile.VICTORY : 0)
+                    | (session.infected ? SaveFile.INFECTED : 0) | (session.first_turn ? SaveFile.FIRST_TURN : 0)));
+            out.put(session == null ? 0 : (byte) session.health);
+            out.put((byte) 0);
+            out.putInt(id);
+            out.putInt(cells);
+            out.putInt(session == null ? 0 : session.score);
+        }
+    }
+
+    // java -jar covidsweeper.jar serve [port] [shards]
+    static void run(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7357;
+        int shard_count = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SweeperServer server = new SweeperServer(port, shard_count);
+        server.start();
+        Metrics.startDumps();
+        System.out.println("SERVER: Listening on " + server.listener.getLocalAddress() + " with " + shard_count + " shards");
+        while (true) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            System.out.println("SERVER: " + CONNECTIONS.get() + " connections, " + GAMES.get() + " games, "
+                    + REQUESTS.get() + " requests, " + server.report());
+        }
+    }
+}
+
+class LoadGenerator { // Bots for SweeperServer. Each connection keeps a batch of games going, one click per game per round trip.
+    private static final Metrics.Histogram ROUND_TRIP = Metrics.histogram("load.round_trip_us");
+    private static final Metrics.Counter CLICKS = Metrics.counter("load.clicks");
+    private static final Metrics.Counter GAMES = Metrics.counter("load.games");
+
+    final int port;
+    final int games; // Played side by side on each connection.
+    final long deadline;
+
+    LoadGenerator(int port, int games, long deadline) {
+        this.port = port;
+        this.games = games;
+        this.deadline = deadline;
+    }
+
+    void play(long seed) { // One connection's worth, random clicks until the time's up.
+        SplittableRandom rand = new SplittableRandom(seed);
+        ByteBuffer out = ByteBuffer.allocateDirect(2 * games * SweeperServer.FRAME); // A finished game takes END and NEW.
+        ByteBuffer in = ByteBuffer.allocateDirect(2 * games * SweeperServer.FRAME);
+        int[] ids = new int[games];
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            for (int g = 0; g < games; g++) {
+                request(out, SweeperServer.NEW, 0, 16 << 16 | 16, 40);
+            }
+            boolean[] over = new boolean[games];
+            int expected = games;
+            while (true) {
+                long began = System.nanoTime();
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+                in.clear();
+                in.limit(expected * SweeperServer.FRAME);
+                while (in.hasRemaining()) {
+                    if (channel.read(in) < 0) {
+                        throw new IOException("Server hung up");
+                    }
+                }
+                ROUND_TRIP.since(began);
+                in.flip();
+                for (int g = 0; in.hasRemaining(); ) { // Replies come back in the order the requests went.
+                    byte op = in.get();
+                    byte state = in.get();
+                    in.position(in.position() + 2);
+                    int id = in.getInt();
+                    in.position(in.position() + 8);
+                    if (op == SweeperServer.END) {
+                        GAMES.increment();
+                        continue; // The NEW that follows it fills the same slot.
+                    }
+                    if (op == SweeperServer.ERROR) {
+                        throw new IOException("Server didn't like game " + id);
+                    }
+                    ids[g] = id;
+                    over[g] = (state & SaveFile.RUNNING) == 0;
+                    g++;
+                }
+                if (System.nanoTime() >= deadline) {
+                    return;
+                }
+                expected = 0;
+                for (int g = 0; g < games; g++) {
+                    if (over[g]) {
+                        request(out, SweeperServer.END, ids[g], 0, 0);
+                        request(out, SweeperServer.NEW, 0, 16 << 16 | 16, 40);
+                        expected += 2;
+                    } else {
+                        CLICKS.increment();
+                        request(out, rand.nextInt(8) == 0 ? SweeperServer.RIGHT : SweeperServer.LEFT, ids[g], rand.nextInt(256), 0);
+                        expected++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void request(ByteBuffer out, byte op, int id, int x, int y) {
+        out.put(op).put((byte) 0).putShort((short) 0).putInt(id).putInt(x).putInt(y);
+    }
+
+    // java -jar covidsweeper.jar load [port] [connections] [games per connection] [seconds]
+    static void run(String[] args) throws InterruptedException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7357;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        LoadGenerator load = new LoadGenerator(port, games, System.nanoTime() + seconds * 1_000_000_000L);
+        System.out.println("LOAD: " + connections + " connections x " + games + " games for " + seconds + "s");
+        Thread[] threads = new Thread[connections];
+        SplittableRandom seeds = new SplittableRandom();
+        long began = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            long seed = seeds.nextLong();
+            threads[c] = new Thread(() -> load.play(seed), "load-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double took = (System.nanoTime() - began) / 1e9;
+        System.out.printf("LOAD: %d clicks (%.0f/s), %d games finished, round trip p50 %dus, p99 %dus%n", CLICKS.get(),
+                CLICKS.get() / took, GAMES.get(), ROUND_TRIP.percentile(0.5), ROUND_TRIP.percentile(0.99));
+    }
+}
+
+class ChunkedBoard { // A board with no edges, made up of 64x64 chunks that only exist while someone's looking at them.
+    // Each chunk's mines come from the seed and the chunk's coordinates alone, so a chunk can be thrown away
+    // and rebuilt identically. Only what the player did to it (reveals and flags) has to be kept, that gets
+    // spilled to a small file when the chunk is evicted and read back when it's needed again.
+    static final int SHIFT = 6;
+    static final int SIZE = 1 << SHIFT; // Cells along a chunk's side.
+    static final int MASK = SIZE - 1;
+    static final int MAX_CHUNKS = 512; // Loaded at once, about 3MB however far the player wanders.
+    static final int MAX_REVEAL = 1 << 16; // Cells one click can open, in case a sparse board opens up forever.
+    static final double MIN_DENSITY = 0.12; // Below about 0.1 blank areas join up and never end.
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    final long seed;
+    final int mines_per_chunk;
+    final long start_row = SIZE / 2; // Kept clear in chunk (0, 0), the game opens up here.
+    final long start_col = SIZE / 2;
+    private final Path spill_dir;
+    private final LinkedHashMap<Long, Chunk> chunks = new LinkedHashMap<>(MAX_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+            if (size() <= MAX_CHUNKS) {
+                return false;
+            }
+            if (eldest.getValue().dirty) {
+                spill(eldest.getKey(), eldest.getValue());
+            }
+            if (eldest.getValue() == last) {
+                last = null;
+            }
+            return true;
+        }
+    };
+    private final ConcurrentHashMap<Long, long[][]> spilling = new ConcurrentHashMap<>(); // Evicted, not on disk yet.
+    private final ExecutorService spiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chunk-spill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Chunk last; // Most lookups land in the same chunk as the one before.
+    private long last_key;
+    private long[] queue_rows = new long[0]; // Flood fill work queue, in global coordinates.
+    private long[] queue_cols = new long[0];
+    private final Thread cleanup = new Thread(this::deleteSpills, "chunk-cleanup");
+    private boolean closed = false; // Guarded by this.
+    int loads = 0; // Chunks built, spilled and read back, for keeping an eye on the cache.
+    int spills = 0;
+
+    static final class Chunk {
+        final Board board; // The chunk's own 64x64 cells, counts include mines over the border.
+        boolean dirty = false; // Touched since it was built or read back.
+
+        Chunk(Board board) {
+            this.board = board;
+        }
+    }
+
+    ChunkedBoard(long seed, double density, Path spill_root) throws IOException {
+        this.seed = seed;
+        this.mines_per_chunk = (int) Math.round(Math.max(MIN_DENSITY, Math.min(1, density)) * SIZE * SIZE);
+        this.spill_dir = spill_root.resolve(Long.toHexString(seed));
+        if (Files.exists(spill_dir)) { // Left over from a run that never cleaned up.
+            try (var old = Files.list(spill_dir)) {
+                for (Path file : (Iterable<Path>) old::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.createDirectories(spill_dir);
+        Runtime.getRuntime().addShutdownHook(cleanup); // However the program ends, the window or the results screen.
+    }
+
+    static long key(long chunk_row, long chunk_col) {
+        return chunk_row << 32 | (chunk_col & 0xFFFFFFFFL);
+    }
+
+    private Board mines(long chunk_row, long chunk_col) { // Just the mines, enough to count across a border.
+        Board board = new Board(SIZE, SIZE);
+        long chunk_seed = seed + GOLDEN * key(chunk_row, chunk_col);
+        boolean origin = chunk_row == 0 && chunk_col == 0;
+        board.placeMines(mines_per_chunk, chunk_seed, origin ? (int) (start_row * SIZE + start_col) : -1);
+        return board;
+    }
+
+    Chunk chunk(long row, long col) {
+        long key = key(row >> SHIFT, col >> SHIFT);
+        if (last != null && last_key == key) {
+            return last;
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = load(row >> SHIFT, col >> SHIFT);
+            chunks.put(key, chunk);
+        }
+        last = chunk;
+        last_key = key;
+        return chunk;
+    }
+
+    private Chunk load(long chunk_row, long chunk_col) {
+        loads++;
+        Board board = mines(chunk_row, chunk_col);
+        board.countAllMines();
+        Board[] around = new Board[9]; // Neighbouring chunks' mines, only built if a border cell needs them.
+        around[4] = board;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (i != 0 && i != MASK && j != 0 && j != MASK) {
+                    j = MASK - 1; // Interior, countAllMines already got it right.
+                    continue;
+                }
+                int outside = 0;
+                for (int di = -1; di <= 1; di++) {
+                    for (int dj = -1; dj <= 1; dj++) {
+                        int r = i + di;
+                        int c = j + dj;
+                        if (r >= 0 && r < SIZE && c >= 0 && c < SIZE) {
+                            continue;
+                        }
+                        int which = (r < 0 ? 0 : r < SIZE ? 1 : 2) * 3 + (c < 0 ? 0 : c < SIZE ? 1 : 2);
+                        if (around[which] == null) {
+                            around[which] = mines(chunk_row + which / 3 - 1, chunk_col + which % 3 - 1);
+                        }
+                        if (around[which].isMine((r & MASK) * SIZE + (c & MASK))) {
+                            outside++;
+                        }
+                    }
+                }
+                board.counts[i * SIZE + j] += outside;
+            }
+        }
+        long[][] planes = spilling.get(key(chunk_row, chunk_col));
+        if (planes == null) {
+            planes = readSpill(chunk_row, chunk_col);
+        }
+        if (planes != null) {
+            System.arraycopy(planes[0], 0, board.revealed, 0, board.revealed.length);
+            System.arraycopy(planes[1], 0, board.flagged, 0, board.flagged.length);
+            board.recount();
+        }
+        return new Chunk(board);
+    }
+
+    private Path spillFile(long key) {
+        return spill_dir.resolve((key >> 32) + "_" + (int) key + ".chunk");
+    }
+
+    private void spill(long key, Chunk chunk) { // Copies on the way out, the file gets written in the background.
+        spills++;
+        long[][] planes = {chunk.board.revealed.clone(), chunk.board.flagged.clone()};
+        spilling.put(key, planes);
+        spiller.execute(() -> {
+            ByteBuffer bytes = ByteBuffer.allocate(2 * planes[0].length * Long.BYTES);
+            bytes.asLongBuffer().put(planes[0]).put(planes[1]);
+            try (FileChannel channel = FileChannel.open(spillFile(key), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } catch (ClosedByInterruptException e) { // Closed mid write, the file's about to be deleted anyway.
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return; // Left in spilling, so it's still there to read back.
+            }
+            spilling.remove(key, planes);
+        });
+    }
+
+    private long[][] readSpill(long chunk_row, long chunk_col) {
+        Path file = spillFile(key(chunk_row, chunk_col));
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+            }
+            bytes.flip();
+            long[][] planes = {new long[SIZE * SIZE / 64], new long[SIZE * SIZE / 64]};
+            bytes.asLongBuffer().get(planes[0]).get(planes[1]);
+            return planes;
+        } catch (IOException e) {
+            e.printStackTrace(); //Losing a chunk's progress beats losing the game.
+            return null;
+        }
+    }
+
+    public int loaded() {
+        return chunks.size();
+    }
+
+    private static int local(long row, long col) {
+        return (int) ((row & MASK) * SIZE + (col & MASK));
+    }
+
+    public boolean isMine(long row, long col) {
+        return chunk(row, col).board.isMine(local(row, col));
+    }
+
+    public boolean isRevealed(long row, long col) {
+        return chunk(row, col).board.isRevealed(local(row, col));
+    }
+
+    public boolean isFlagged(long row, long col) {
+        return chunk(row, col).board.isFlagged(local(row, col));
+    }
+
+    public int getCount(long row, long col) {
+        return chunk(row, col).board.getCount(local(row, col));
+    }
+
+    public void uncover(long row, long col) {
+        Chunk chunk = chunk(row, col);
+        chunk.board.uncover(local(row, col));
+        chunk.dirty = true;
+    }
+
+    public boolean toggleFlag(long row, long col) {
+        Chunk chunk = chunk(row, col);
+        chunk.dirty = true;
+        return chunk.board.toggleFlag(local(row, col));
+    }
+
+    private boolean opens(long row, long col) {
+        Board board = chunk(row, col).board;
+        int i = local(row, col);
+        return !board.isRevealed(i) && !board.isFlagged(i) && !board.isMine(i);
+    }
+
+    private int push(int tail, long row, long col) {
+        if (tail == queue_rows.length) {
+            queue_rows = Arrays.copyOf(queue_rows, Math.max(64, tail * 2));
+            queue_cols = Arrays.copyOf(queue_cols, Math.max(64, tail * 2));
+        }
+        Chunk chunk = chunk(row, col);
+        Board.set(chunk.board.revealed, local(row, col));
+        chunk.board.revealed_safe++;
+        chunk.dirty = true;
+        queue_rows[tail] = row;
+        queue_cols[tail] = col;
+        return tail + 1;
+    }
+
+    // Same cascade as Board.reveal, except it carries on into whichever chunks it reaches.
+    public int reveal(long start_row, long start_col) {
+        if (!opens(start_row, start_col)) {
+            return 0;
+        }
+        int head = 0;
+        int tail = push(0, start_row, start_col);
+        while (head < tail && tail < MAX_REVEAL) {
+            long row = queue_rows[head];
+            long col = queue_cols[head++];
+            if (getCount(row, col) != 0) {
+                continue;
+            }
+            for (long i = row - 1; i <= row + 1; i++) {
+                for (long j = col - 1; j <= col + 1; j++) {
+                    if (opens(i, j)) {
+                        tail = push(tail, i, j);
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+    public void close() { // Spilled chunks are only any use to this game.
+        try {
+            Runtime.getRuntime().removeShutdownHook(cleanup);
+        } catch (IllegalStateException ignored) { // Already shutting down, this is the hook.
+        }
+        deleteSpills();
+    }
+
+    private synchronized void deleteSpills() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        spiller.shutdownNow();
+        try {
+            spiller.awaitTermination(1, TimeUnit.SECONDS); // A write in flight would put a file back after the delete.
+        } catch (InterruptedException ignored) {
+        }
+        try (var files = Files.list(spill_dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(spill_dir);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
+
+class EndlessSession { // Session's rules on a ChunkedBoard. There's nothing to clear, so it only ends when health runs out.
+    final ChunkedBoard board;
+    int lives = Session.LIVES;
+    int score = 0;
+    double health = 0;
+    boolean running = true;
+
+    EndlessSession(ChunkedBoard board) {
+        this.board = board;
+        board.reveal(board.start_row, board.start_col); // Always safe, the generator keeps it clear.
+    }
+
+    public double infectionChance() { // In percent.
+        return health / lives * 100;
+    }
+
+    public int leftClick(long row, long col) { // Cells uncovered, same as Session.leftClick.
+        if (!running || board.isRevealed(row, col) || board.isFlagged(row, col)) {
+            return 0;
+        }
+        if (board.isMine(row, col)) {
+            board.uncover(row, col);
+            score += Session.MINE_POINTS;
+            if (health >= lives) {
+                running = false;
+            } else {
+                health += 1;
+            }
+            return 1;
+        }
+        score += Session.SAFE_POINTS;
+        return board.reveal(row, col);
+    }
+
+    public boolean rightClick(long row, long col) {
+        if (!running || board.isRevealed(row, col)) {
+            return false;
+        }
+        board.toggleFlag(row, col);
+        return true;
+    }
+}
+
+class EndlessView extends JComponent { // Draws whatever part of a ChunkedBoard is in the window, the arrow keys move it.
+    private final EndlessSession session;
+    long top; // Board coordinates of the cell in the top left corner.
+    long left;
+    private final BufferedImage[] tiles = new BufferedImage[13];
+    private Theme theme = Theme.current;
+    private final Rectangle clip = new Rectangle();
+
+    EndlessView(EndlessSession session) {
+        this.session = session;
+        setOpaque(true);
+        setBackground(theme.background);
+        top = session.board.start_row - 10;
+        left = session.board.start_col - 9;
+    }
+
+    public void pan(long rows, long cols) {
+        top += rows;
+        left += cols;
+        repaint();
+    }
+
+    public long rowAt(int y) {
+        return top + y / BoardView.CELL;
+    }
+
+    public long colAt(int x) {
+        return left + x / BoardView.CELL;
+    }
+
+    private int tileOf(long row, long col) {
+        ChunkedBoard board = session.board;
+        if (board.isRevealed(row, col)) {
+            return board.isMine(row, col) ? BoardView.MINE : board.getCount(row, col);
+        }
+        if (!session.running && board.isMine(row, col)) {
+            return board.isFlagged(row, col) ? BoardView.SAVED : BoardView.MINE;
+        }
+        return board.isFlagged(row, col) ? BoardView.FLAGGED : BoardView.COVERED;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (theme != Theme.current) {
+            theme = Theme.current;
+            Arrays.fill(tiles, null);
+            setBackground(theme.background);
+        }
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip);
+        int cell = BoardView.CELL;
+        for (int y = clip.y / cell * cell; y < clip.y + clip.height; y += cell) {
+            for (int x = clip.x / cell * cell; x < clip.x + clip.width; x += cell) {
+                int kind = tileOf(rowAt(y), colAt(x));
+                if (tiles[kind] == null) {
+                    tiles[kind] = BoardView.drawTile(theme, kind, cell, cell);
+                }
+                g.drawImage(tiles[kind], x, y, null);
+            }
+        }
+    }
+}
+
+class Game extends JFrame {
+    Session session; // The rules and the board, everything here only shows them.
+    private boolean pinned_seed; // Asked for a particular seed, so no generator boards.
+    private final SplittableRandom seeds = new SplittableRandom();
+    boolean no_guess = false; // Boards that never need a guess (G), otherwise only the first click is safe.
+    Topology.Shape shape = Topology.Shape.SQUARE; // What new games get played on, M cycles through them.
+    private Generator generator; // Keeps the next board for this size ready.
+    private static final Metrics.Histogram INIT_TIME = Metrics.histogram("board.init_us");
+    private static final Metrics.Histogram GENERATE_TIME = Metrics.histogram("board.generate_us");
+    private static final Metrics.Counter GAMES = Metrics.counter("games.started");
+    private static final Metrics.Counter WINS = Metrics.counter("games.won");
+    private static final Metrics.Counter LOSSES = Metrics.counter("games.lost");
+    private static final Metrics.Counter HINTS = Metrics.counter("hints");
+    static final Path SAVE = Paths.get("game.sav");
+    static final int AUTOSAVE_MILLIS = 2000; // A save at most this long after a move, closing the window saves straight away.
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer autosave = new Timer(AUTOSAVE_MILLIS, e -> saveIfChanged()); // Left running, a click only sets unsaved.
+    private boolean unsaved = false;
+    static final Path REPLAY = Paths.get("games.replay"); // Every game played gets appended here.
+    private ReplayLog recording = null;
+    Replay replay = null; // Set when watching a log rather than playing.
+    private Timer replay_timer;
+    private Board shown_board; // What the view was last given, a replay swaps boards under it.
+    static final Path ENDLESS = Paths.get("endless"); // Where endless chunks go while they're out of memory.
+    static final double ENDLESS_DENSITY = 35 / 256.0; // Same as the starting board.
+    static final int PAN = 4; // Cells the arrow keys move the endless board by.
+    EndlessSession endless = null; // Set while playing the endless board, session sits idle meanwhile.
+    private EndlessView endless_view;
+
+    JScrollPane minesweeper_panel; // scrolls the grid when it's bigger than the window.
+    BoardView board_view; // One component drawing all of the cells.
+    private boolean batching = false; // Set while auto-play runs, the view only gets flushed once it's done.
+    Readout score_label; // Readouts rather than JLabels, a click updates them without building any Strings.
+    Readout health_label;
+    ScoreWindow scoreboard;
+
+    public Game() {
+        // call initialise, unless there's a game to carry on with
+
+        recording = new ReplayLog(REPLAY);
+        Session saved = loadSave();
+        if (saved != null && saved.running) {
+            resume(saved);
+        } else {
+            initialise(16,16,35);
+        }
+        autosave.start();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) { // Runs before EXIT_ON_CLOSE gets to exit.
+                autosave.stop();
+                save();
+                saver.shutdown();
+                try {
+                    saver.awaitTermination(2, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+
+
+        configure();
+    }
+
+    public Game(Replay replay, int millis) { // Watches a recorded log play out instead, a step every millis.
+        this.replay = replay;
+        while (replay.session == null && replay.next()) { // Up to the first game.
+        }
+        session = replay.session != null ? replay.session : new Session(16, 16, 35, 0);
+        showSession();
+        replay_timer = new Timer(millis, e -> {
+            if (!replay.next()) {
+                ((Timer) e.getSource()).stop();
+            }
+            showReplay();
+        });
+        replay_timer.start();
+        configure();
+    }
+
+    private void configure() {
+        // key listener to respond to key events
+        addKeyListener(new KeyboardListener(this));
+        EdtWatchdog.start();
+
+
+        // standard configuration
+        setSize(new Dimension(500, 600));
+        getContentPane().setBackground(Theme.current.background);
+        setTitle(replay == null ? "1903148 - COVIDSweepr" : "1903148 - COVIDSweepr - Replay");
+        setResizable(true);
+        setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        setVisible(true);
+    }
+
+    private void showReplay() { // Catches the view up with wherever the replay has got to.
+        if (replay.session == null) {
+            return;
+        }
+        if (replay.session != session) { // A new game, or a seek landed on a snapshot.
+            session = replay.session;
+            showSession();
+        } else if (shown_board != session.board) { // The first click put the mines down.
+            board_view.setBoard(session.board);
+            shown_board = session.board;
+        } else {
+            board_view.repaint();
+        }
+        score_label.setNumber("Score: ", session.score);
+        health_label.setText(Theme.chanceText(session.health, session.lives));
+        if (!session.running) {
+            board_view.setExposed(true);
+            health_label.setText("You're back home...");
+        }
+    }
+
+    public void seekReplay(int events) {
+        replay.seek(Math.max(0, replay.step() + events));
+        showReplay();
+    }
+
+    public void pauseReplay() {
+        if (replay_timer.isRunning()) {
+            replay_timer.stop();
+        } else {
+            replay_timer.start();
+        }
+    }
+
+    private Session loadSave() {
+        if (!Files.exists(SAVE)) {
+            return null;
+        }
+        try {
+            Session saved = SaveFile.read(SAVE);
+            System.out.println("GAME: Resuming seed " + saved.seed);
+            return saved;
+        } catch (IOException e) {
+            e.printStackTrace(); //A save we can't read just means a new game.
+            return null;
+        }
+    }
+
+    private void changed() { // Something worth keeping happened, the autosave timer picks it up.
+        unsaved = true;
+    }
+
+    private void saveIfChanged() {
+        if (unsaved) {
+            unsaved = false;
+            save();
+        }
+    }
+
+    private void save() {
+        if (saver.isShutdown() || endless != null) { // Endless boards aren't saved, the last normal game stays put.
+            return;
+        }
+        if (!session.running) { // Nothing to come back to.
+            saver.execute(() -> {
+                try {
+                    Files.deleteIfExists(SAVE);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            return;
+        }
+        SaveFile snapshot = new SaveFile(session); // Copied here, written out on the saver thread.
+        saver.execute(() -> {
+            try {
+                snapshot.write(SAVE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    void startScoreboard() {
+        String player_name = JOptionPane.showInputDialog("What is your name?");
+        if (player_name.length() < 1) {player_name = "Anonymous";} //Just in case they're too lazy to put in a name.
+        if (endless != null) { // Nobody wins an endless game, it's all about the score.
+            this.scoreboard = new ScoreWindow(new Score(player_name, endless.score), false);
+        } else {
+            this.scoreboard = new ScoreWindow(new Score(player_name, session.score), session.victory);
+        }
+    }
+
+    void initialise(int rows, int cols, int mines) {
+        initialise(rows, cols, mines, seeds.nextLong());
+        pinned_seed = false;
+        useGenerator();
+    }
+
+    void initialise(int rows, int cols, int mines, long seed) {
+        long began = System.nanoTime();
+        BoardInitEvent event = new BoardInitEvent();
+        event.begin();
+        GAMES.increment();
+        pinned_seed = true;
+        session = new Session(new Topology(shape, rows, cols), mines, seed);
+        if (recording != null) {
+            recording.reset(shape, rows, cols, mines, session.lives, seed);
+        }
+        showSession();
+        INIT_TIME.since(began);
+        event.rows = rows;
+        event.cols = cols;
+        event.mines = mines;
+        event.commit();
+        changed();
+    }
+
+    void resume(Session saved) { // Picks a saved game back up where it was left.
+        pinned_seed = true;
+        session = saved;
+        if (recording != null) {
+            recording.resume();
+        }
+        showSession();
+        showStatus();
+    }
+
+    private void showSession() { // Points the view and labels at the current session.
+        leaveEndless();
+        int mines = session.mines;
+        shape = session.topology.shape; // A resumed game carries on with its own shape.
+        if (generator != null && !generator.makes(session.topology, mines)) { // Made again if it's wanted for this size.
+            generator.cancel();
+            generator = null;
+        }
+        if (board_view == null) { // The view and its one mouse listener stay put across resets, only the board changes.
+            board_view = new BoardView(session.board);
+            board_view.addMouseListener(new MouseClickListener(this));
+            minesweeper_panel = new JScrollPane(board_view);
+            minesweeper_panel.setBorder(null);
+            minesweeper_panel.getViewport().setBackground(Theme.current.background);
+            minesweeper_panel.getHorizontalScrollBar().setFocusable(false); // Keep the keyboard on the frame.
+            minesweeper_panel.getVerticalScrollBar().setFocusable(false);
+            this.add(minesweeper_panel, BorderLayout.CENTER);
+        } else {
+            board_view.setBoard(session.board);
+            minesweeper_panel.getViewport().setViewPosition(new Point(0, 0));
+        }
+        shown_board = session.board;
+
+        if (score_label == null) { // Made once, a reset only puts them back to how a game starts.
+            score_label = new Readout(false);
+            score_label.setFont(Theme.SCORE_FONT);
+            health_label = new Readout(true);
+            health_label.setFont(Theme.HEALTH_FONT);
+
+            // add panels to frame (via BorderLayout)
+            this.add(health_label, BorderLayout.NORTH);
+            this.add(score_label, BorderLayout.SOUTH);
+        }
+        score_label.setNumber("Score: ", session.score);
+        score_label.setForeground(Theme.current.score);
+        health_label.setText("Infection Chance: 0%");
+        health_label.setForeground(Theme.current.health);
+    }
+
+    public void game_over(boolean victory) {
+        Board board = session.board;
+        board_view.setExposed(true); //Flagged mines go green, the rest show their bomb.
+        board_view.changedAll(); // Mines are everywhere, one repaint of what's on screen beats one per mine.
+        health_label.setText("You're back home...");
+        if (victory) {
+            System.out.println("PLAYER: Victory!");
+            WINS.increment();
+        } else {
+            LOSSES.increment();
+        }
+    }
+
+    private void showStatus() { // View and labels catch up with whatever the last click did to the session.
+        score_label.setNumber("Score: ", session.score);
+        if (session.infected) {
+            health_label.setText("Infection Chance: CERTAIN.");
+            health_label.setForeground(Theme.current.certain);
+        } else {
+            health_label.setText(Theme.chanceText(session.health, session.lives)); // Chance of getting infected abstracted with this lives system.
+        }
+        if (!session.running) {
+            game_over(session.victory);
+        }
+        if (!batching) {
+            board_view.flushChanges();
+        }
+    }
+
+    public int countMines(int x, int y) {
+        return session.board.countMines(x, y);
+    }
+
+    public int leftClick(int cell) { // Returns how many cells got uncovered.
+        board_view.setHint(-1);
+        boolean opening = session.first_turn;
+        if (recording != null) {
+            recording.left(cell);
+        }
+        long began = System.nanoTime();
+        BoardInitEvent event = null;
+        if (opening) {
+            event = new BoardInitEvent();
+            event.begin();
+        }
+        boolean was_running = session.running;
+        int uncovered = session.leftClick(cell);
+        if (uncovered == 0) {
+            return 0;
+        }
+        Board board = session.board;
+        if (opening) { // The board only exists now.
+            GENERATE_TIME.since(began);
+            event.rows = board.rows;
+            event.cols = board.cols;
+            event.mines = board.mine_count;
+            event.first_click = true;
+            event.commit();
+            if (recording != null) {
+                recording.opened(board.opening, board.seed); // Generator boards don't come from the reset's seed.
+            }
+            System.out.println("GAME: Seed " + session.seed + ", opened at " + board.rowOf(cell) + "," + board.colOf(cell));
+            board_view.setBoard(board);
+            shown_board = board;
+        } else if (board.isMine(cell)) {
+            board_view.changed(cell);
+        } else {
+            for (int n = 0; n < uncovered; n++) { // Cascading reveals to make clicking blank spots reasonable.
+                board_view.changed(board.revealedCell(n));
+            }
+        }
+        recordRoll(was_running);
+        showStatus();
+        changed();
+        return uncovered;
+    }
+
+    public void rightClick(int cell) {
+        board_view.setHint(-1);
+        if (recording != null) {
+            recording.right(cell);
+        }
+        boolean was_running = session.running;
+        if (session.rightClick(cell)) {
+            recordRoll(was_running);
+            if (shown_board != session.board) { // The first flag of a game gets it a board of its own.
+                board_view.setBoard(session.board);
+                shown_board = session.board;
+            } else {
+                board_view.changed(cell);
+            }
+            showStatus();
+            changed();
+        }
+    }
+
+    private void recordRoll(boolean was_running) { // The infection roll isn't seeded, so a replay has to be told how it went.
+        if (recording != null && was_running && !session.running && !session.infected) {
+            recording.rolled(session.roll);
+        }
+    }
+
+    public void startEndless() {
+        leaveEndless();
+        long endless_seed = seeds.nextLong();
+        try {
+            endless = new EndlessSession(new ChunkedBoard(endless_seed, ENDLESS_DENSITY, ENDLESS));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.println("GAME: Endless, seed " + endless_seed);
+        endless_view = new EndlessView(endless);
+        endless_view.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                endlessClick(e);
+            }
+        });
+        remove(minesweeper_panel);
+        add(endless_view, BorderLayout.CENTER);
+        score_label.setNumber("Score: ", 0);
+        health_label.setText("Infection Chance: 0%");
+        health_label.setForeground(Theme.current.health);
+        revalidate();
+        repaint();
+    }
+
+    private void leaveEndless() {
+        if (endless == null) {
+            return;
+        }
+        endless.board.close();
+        remove(endless_view);
+        add(minesweeper_panel, BorderLayout.CENTER);
+        endless = null;
+        endless_view = null;
+    }
+
+    private void endlessClick(MouseEvent e) {
+        if (!endless.running) { //Same as the normal board, a click once it's over brings up the results.
+            startScoreboard();
+            return;
+        }
+        long row = endless_view.rowAt(e.getY());
+        long col = endless_view.colAt(e.getX());
+        if (e.getButton() == 1) {
+            endless.leftClick(row, col);
+        } else if (e.getButton() == 3) {
+            endless.rightClick(row, col);
+        }
+        endless_view.repaint();
+        score_label.setNumber("Score: ", endless.score);
+        health_label.setText(Theme.chanceText(endless.health, endless.lives));
+        if (!endless.running) {
+            health_label.setForeground(Theme.current.certain);
+            health_label.setText("You're back home...");
+            LOSSES.increment();
+        }
+    }
+
+    public boolean pan(long rows, long cols) { // False when there's no endless board to move.
+        if (endless_view == null) {
+            return false;
+        }
+        endless_view.pan(rows * PAN, cols * PAN);
+        return true;
+    }
+
+    public void switchTheme() { // Views redraw their tiles on the next paint, the labels and backgrounds change here.
+        Theme theme = Theme.next();
+        Theme.current = theme;
+        System.out.println("THEME: " + theme.name);
+        getContentPane().setBackground(theme.background);
+        minesweeper_panel.getViewport().setBackground(theme.background);
+        score_label.setForeground(theme.score);
+        boolean over = endless != null ? !endless.running : session.infected;
+        health_label.setForeground(over ? theme.certain : theme.health);
+        repaint();
+    }
+
+    public void cycleShape() { // Square, torus, hex, then back round. Starts a new game of the same size.
+        if (endless != null) {
+            return;
+        }
+        Topology.Shape[] shapes = Topology.Shape.values();
+        shape = shapes[(shape.ordinal() + 1) % shapes.length];
+        System.out.println("GAME: " + shape.name().toLowerCase() + " boards");
+        initialise(session.rows, session.cols, session.mines);
+        revalidate();
+    }
+
+    public void toggleNoGuess() {
+        no_guess = !no_guess;
+        System.out.println("GENERATOR: No-guess boards " + (no_guess ? "on" : "off"));
+        if (session.first_turn && !pinned_seed) { // Not clicked yet, so this game can still switch.
+            useGenerator();
+        }
+    }
+
+    // Only an unclicked game on a random seed gets a generator board, pinned seeds, saves and replays play what they were given.
+    // The generator for a size is only made once something asks for it, it starts searching straight away.
+    private void useGenerator() {
+        if (!no_guess || pinned_seed || replay != null) {
+            session.generator = null;
+            board_view.setStart(-1);
+            return;
+        }
+        if (generator == null || !generator.makes(session.topology, session.mines)) {
+            if (generator != null) {
+                generator.cancel();
+            }
+            generator = new Generator(session.topology, session.mines, seeds.nextLong());
+        }
+        session.generator = generator;
+        board_view.setStart(generator.start);
+    }
+
+    public void hint() { // Outlines a cell the solver can prove is safe.
+        if (!session.running || endless != null) {
+            return;
+        }
+        HINTS.increment();
+        Solver solver = new Solver(session.board);
+        solver.solve();
+        int cell = solver.nextSafe(0);
+        if (cell < 0) {
+            System.out.println("HINT: Nothing's certain, you'll have to guess.");
+        }
+        board_view.setHint(cell);
+    }
+
+    public void autoPlay() { // Plays every move the solver can prove, until it has to guess or the game ends.
+        if (endless != null) {
+            return;
+        }
+        Solver solver = new Solver(session.board);
+        batching = true; // However many moves it makes, they go on screen together.
+        while (session.running && solver.solve()) {
+            for (int i = solver.nextMine(0); i >= 0 && session.running; i = solver.nextMine(i + 1)) {
+                rightClick(i);
+            }
+            for (int i = solver.nextSafe(0); i >= 0 && session.running; i = solver.nextSafe(i + 1)) {
+                leftClick(i);
+            }
+        }
+        batching = false;
+        board_view.flushChanges();
+    }
+
+}
+
+class ScoreWindow extends JFrame {
+    static final ScoreJournal JOURNAL = new ScoreJournal("scores.txt", "scores.journal");
+    static final ScoreIndex INDEX = new ScoreIndex(); // Kept for the whole run, each window only reads what's new.
+    static final int TOP_SCORES = 5;
+    Score latest_score;
+    Leaderboard leaderboard;
+    ArrayList<Score> scores; // The top scores, best first.
+    int rank; // All of these count the latest score in.
+    int games;
+    double percentile;
+    int personal_best;
+    int personal_games;
+    JLabel verdict;
+    JLabel latest_score_label;
+    JLabel standing_label;
+    JLabel score_list_label;
+
+    private static final Metrics.Histogram OPEN_TIME = Metrics.histogram("scorewindow.open_us");
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("scorewindow.load_us");
+    // One thread for every window's reads, so a burst of finished games queues up here instead of on the event thread.
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "score-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ScoreWindow(Score latest_score, boolean victory) {
+        long began = System.nanoTime();
+        leaderboard = new Leaderboard(TOP_SCORES);
+        leaderboard.offer(latest_score);
+        this.latest_score = latest_score;
+        setLayout(new GridLayout(4,1));
+        initialize(victory); // The player's own score straight away, the top list once it's been read.
+        loadScores(began);
+        setLayout(new FlowLayout());
+        setSize(new Dimension(500,600));
+        setResizable(false);
+        setTitle("1903148 - COVIDQuest - Results");
+        getContentPane().setBackground(new Color(0x555555));
+        setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        setVisible(true);
+        OPEN_TIME.since(began);
+    }
+
+    public void initialize(boolean victory) {
+        if (this.verdict != null) {
+            remove(verdict);
+            remove(latest_score_label);
+            remove(standing_label);
+            remove(score_list_label);
+            verdict = null;
+            latest_score = null;
+            standing_label = null;
+            score_list_label = null;
+        }
+
+        if (victory) {
+            verdict = new JLabel("You're Safe.");
+            verdict.setForeground(Color.green);
+            verdict.setBackground(Color.WHITE);
+        } else {
+            verdict = new JLabel("You've contracted COVID-19");
+            verdict.setForeground(Color.red);
+            verdict.setBackground(new Color(0xE38948));
+        }
+        verdict.setFont(new Font("Helvetica", Font.BOLD, 32));
+        add(verdict);
+
+        latest_score_label = new JLabel(latest_score.name + ", you scored " + latest_score.score + " points total.");
+        latest_score_label.setFont(new Font("Arial", Font.ITALIC, 25));
+        latest_score_label.setBackground(new Color(0x898989));
+        latest_score_label.setForeground(new Color(0xFFFFFF));
+        add(latest_score_label);
+
+        standing_label = new JLabel("...Working out your rank...");
+        standing_label.setFont(new Font("Arial", Font.PLAIN, 18));
+        standing_label.setForeground(new Color(0xFFFFFF));
+        add(standing_label);
+
+        score_list_label = new JLabel("<html>TOP " + TOP_SCORES + " HIGHEST SCORES<br>...Fetching...</html>");
+        score_list_label.setForeground(new Color(0xC6C6C6));
+        score_list_label.setFont(new Font("Arial", Font.BOLD, 25));
+        score_list_label.setHorizontalAlignment(JLabel.CENTER);
+        add(score_list_label);
+    }
+
+
+    // Read, then queue the new score, then sort, all on the loader thread. Reading before the write is queued means
+    // the new score is only counted once, it was offered to the leaderboard up front. Every step names LOADER, a plain
+    // whenComplete or thenRun would run on the event thread if the read had already finished, racing INDEX.
+    private void loadScores(long began) {
+        CompletableFuture.runAsync(() -> {
+                    try {
+                        readScores();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, LOADER)
+                .whenCompleteAsync((done, error) -> writeScores(), LOADER) // Still kept if the old ones couldn't be read.
+                .thenRunAsync(this::sortScores, LOADER)
+                .whenCompleteAsync((done, error) -> {
+                    showScores(error);
+                    LOAD_TIME.since(began);
+                }, SwingUtilities::invokeLater);
+    }
+
+    private void showScores(Throwable error) {
+        StringBuilder single_string = new StringBuilder();
+        single_string.append("<html>TOP ").append(TOP_SCORES).append(" HIGHEST SCORES<br>"); //HTML tags for line breaks in JLabel.
+        if (error != null) {
+            error.printStackTrace();
+            single_string.append("...Couldn't read them...");
+        } else {
+            try {
+                for (int i = 0; i < TOP_SCORES; ++i) {
+                    single_string.append(i+1).append(". ").append(scores.get(i).name).append(" = ").append(scores.get(i).score).append(".<br>");
+                }
+            } catch (IndexOutOfBoundsException e) { //If we have less than five names.
+                single_string.append("...And no one else...");
+            }
+        }
+        single_string.append("</html>");
+        score_list_label.setText(single_string.toString());
+        if (error == null) {
+            standing_label.setText(String.format("<html>Rank %d of %d, better than %.1f%% of games.<br>Your best is %d over %d game%s.</html>",
+                    rank, games, percentile, personal_best, personal_games, personal_games == 1 ? "" : "s"));
+        } else {
+            standing_label.setText("");
+        }
+    }
+
+    public void readScores() throws IOException {
+        INDEX.catchUp(JOURNAL); //Only reads the scores added since the last window.
+    }
+
+    public void writeScores() {
+        JOURNAL.append(latest_score); //Only the new score gets written, and on the journal's own thread.
+    }
+
+    public void sortScores() { //Top scores in descending order, and where the latest one stands. It isn't in the index yet.
+        for (Score score : INDEX.top(TOP_SCORES)) {
+            leaderboard.offer(score);
+        }
+        scores = leaderboard.top();
+        rank = leaderboard.rank(latest_score); // Matches the list when it's on it, ties below the top few share a place.
+        if (rank == 0) {
+            rank = INDEX.rank(latest_score.score);
+        }
+        games = INDEX.size() + 1;
+        percentile = INDEX.percentile(latest_score.score);
+        ScoreIndex.Player player = INDEX.player(latest_score.name);
+        personal_best = player == null ? latest_score.score : Math.max(player.best, latest_score.score);
+        personal_games = player == null ? 1 : player.games + 1;
+    }
+}
+
+class MouseClickListener implements MouseListener { // One of these per window, it sits on the BoardView.
+
+    private final Game game; // game passed through to allow for game manipulation
+    private static final Metrics.Histogram CLICK_TIME = Metrics.histogram("click.time_us");
+    private static final Metrics.Histogram CLICK_CELLS = Metrics.histogram("click.cells");
+    private static final Metrics.Counter LEFT_CLICKS = Metrics.counter("click.left");
+    private static final Metrics.Counter RIGHT_CLICKS = Metrics.counter("click.right");
+    private static final EventType CLICK_EVENTS = EventType.getEventType(ClickEvent.class);
+
+    public MouseClickListener(Game game) {
+        this.game = game;
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        if (game.replay != null) { //Watching a replay, hands off.
+            return;
+        }
+        if (game.session.running) { //If the game is running, we use mouseClicked to reveal cells.
+            int cell = game.board_view.cellAt(e.getX(), e.getY()); //Which cell is worked out from the pixel position.
+            if (cell < 0) { //Clicked the gap around the grid.
+                return;
+            }
+            long began = System.nanoTime();
+            ClickEvent event = null; // Only made while a recording wants it, so a plain click allocates nothing.
+            if (CLICK_EVENTS.isEnabled()) {
+                event = new ClickEvent();
+                event.begin();
+            }
+            int revealed = 0;
+            if (e.getButton() == 1) { //If LMB clicked.
+                LEFT_CLICKS.increment();
+                revealed = game.leftClick(cell);
+            } else if (e.getButton() == 3) { //If RMB clicked
+                RIGHT_CLICKS.increment();
+                game.rightClick(cell);
+            }
+            CLICK_TIME.since(began);
+            CLICK_CELLS.record(revealed);
+            game.board_view.clickedAt(began); // The view finishes timing it once the result is on screen.
+            if (event != null) {
+                event.cell = cell;
+                event.button = e.getButton();
+                event.revealed = revealed;
+                event.commit();
+            }
+        } else { //If the game isn't running, then it would be time to bring up results.
+            game.startScoreboard();
+        }
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+
+    }
+}
+
+class KeyboardListener implements KeyListener {
+
+    private final Game game; // game passed through to allow for game manipulation
+
+    public KeyboardListener(Game game) {
+        this.game = game;
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        //                this.game.repaint();
+        if (this.game.replay != null) { // Watching a replay: arrows seek, space pauses.
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_LEFT -> this.game.seekReplay(-Replay.SNAPSHOT_EVERY / 4);
+                case KeyEvent.VK_RIGHT -> this.game.seekReplay(Replay.SNAPSHOT_EVERY / 4);
+                case KeyEvent.VK_SPACE -> this.game.pauseReplay();
+                default -> { }
+            }
+            return;
+        }
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_UP -> {
+                if (!this.game.pan(-1, 0)) {
+                    System.out.println("Up");
+                }
+            }
+            case KeyEvent.VK_DOWN -> {
+                if (!this.game.pan(1, 0)) {
+                    System.out.println("Down");
+                }
+            }
+            case KeyEvent.VK_LEFT -> {
+                if (!this.game.pan(0, -1)) {
+                    System.out.println("Left");
+                }
+            }
+            case KeyEvent.VK_RIGHT -> {
+                if (!this.game.pan(0, 1)) {
+                    System.out.println("Right");
+                }
+            }
+            case KeyEvent.VK_E -> this.game.startEndless();
+            case KeyEvent.VK_H -> this.game.hint();
+            case KeyEvent.VK_A -> this.game.autoPlay();
+            case KeyEvent.VK_G -> this.game.toggleNoGuess();
+            case KeyEvent.VK_T -> this.game.switchTheme();
+            case KeyEvent.VK_M -> this.game.cycleShape();
+            case KeyEvent.VK_SPACE -> {
+                System.out.println("SPACEBAR: Reset Game");
+                this.game.initialise(16, 16, 128);
+                this.game.revalidate(); // repaints node children, rather than node
+            }
+            default -> System.out.println("Other");
+        }
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+
+    }
+}
+
+class Metrics { // Counters and latency histograms, cheap enough to leave on and dumped every so often if asked.
+    // -Dcovidsweeper.metrics=text or json turns the dumps on, covidsweeper.metrics.every sets the seconds
+    // between them and covidsweeper.metrics.file sends them to a file instead of the console.
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+    }
+
+    static final class Counter {
+        final String name;
+        private final LongAdder count = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        void increment() {
+            count.increment();
+        }
+
+        long get() {
+            return count.sum();
+        }
+    }
+
+    static final class Histogram { // Power of two buckets, bucket b holds values below 2^b (and at least 2^(b-1)).
+        final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        void record(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        long since(long began) { // Records microseconds since a System.nanoTime() and hands them back.
+            long micros = (System.nanoTime() - began) / 1000;
+            record(micros);
+            return micros;
+        }
+
+        long percentile(double fraction) { // Upper edge of the bucket it lands in, so never an underestimate.
+            long wanted = Math.max(1, (long) Math.ceil(fraction * count.sum()));
+            long seen = 0;
+            for (int b = 0; b < buckets.length(); b++) {
+                seen += buckets.get(b);
+                if (seen >= wanted) {
+                    return Math.min(max.get(), b == 0 ? 0 : (1L << b) - 1);
+                }
+            }
+            return max.get();
+        }
+    }
+
+    static String text() {
+        StringBuilder out = new StringBuilder();
+        for (String name : new TreeSet<>(COUNTERS.keySet())) {
+            out.append(String.format("%-24s %d%n", name, COUNTERS.get(name).get()));
+        }
+        for (String name : new TreeSet<>(HISTOGRAMS.keySet())) {
+            Histogram histogram = HISTOGRAMS.get(name);
+            long count = histogram.count.sum();
+            out.append(String.format("%-24s count %d, mean %.1f, p50 %d, p90 %d, p99 %d, max %d%n", name, count,
+                    count == 0 ? 0.0 : (double) histogram.total.sum() / count, histogram.percentile(0.5),
+                    histogram.percentile(0.9), histogram.percentile(0.99), histogram.max.get()));
+        }
+        return out.toString();
+    }
+
+    static String json() { // One line, so a dump file can be read back a line at a time.
+        StringBuilder out = new StringBuilder("{\"time\":").append(System.currentTimeMillis()).append(",\"counters\":{");
+        String comma = "";
+        for (String name : new TreeSet<>(COUNTERS.keySet())) {
+            out.append(comma).append('"').append(name).append("\":").append(COUNTERS.get(name).get());
+            comma = ",";
+        }
+        out.append("},\"histograms\":{");
+        comma = "";
+        for (String name : new TreeSet<>(HISTOGRAMS.keySet())) {
+            Histogram histogram = HISTOGRAMS.get(name);
+            out.append(comma).append('"').append(name).append("\":{\"count\":").append(histogram.count.sum())
+                    .append(",\"total\":").append(histogram.total.sum())
+                    .append(",\"p50\":").append(histogram.percentile(0.5))
+                    .append(",\"p90\":").append(histogram.percentile(0.9))
+                    .append(",\"p99\":").append(histogram.percentile(0.99))
+                    .append(",\"max\":").append(histogram.max.get()).append('}');
+            comma = ",";
+        }
+        return out.append("}}").toString();
+    }
+
+    static void startDumps() {
+        String format = System.getProperty("covidsweeper.metrics");
+        if (format == null) {
+            return;
+        }
+        long every = Long.getLong("covidsweeper.metrics.every", 10);
+        String file = System.getProperty("covidsweeper.metrics.file");
+        Runnable dump = () -> {
+            String report = format.equals("json") ? json() + System.lineSeparator() : "METRICS:" + System.lineSeparator() + text();
+            if (file == null) {
+                System.out.print(report);
+                return;
+            }
+            try {
+                Files.write(Paths.get(file), report.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        };
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(dump, every, every, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(dump)); //One last dump on the way out.
+    }
+}
+
+class EdtWatchdog { // Pokes the event thread now and then, anything that keeps it from answering quickly is a stall.
+    static final long POKE_MILLIS = 100;
+    static final long STALL_MILLIS = 100; // Past this a stall gets its own flight recorder event.
+    private static final Metrics.Histogram LAG = Metrics.histogram("edt.lag_us");
+    private static final Metrics.Counter STALLS = Metrics.counter("edt.stalls");
+
+    static void start() {
+        Thread thread = new Thread(EdtWatchdog::watch, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void watch() {
+        while (true) {
+            long poked = System.nanoTime();
+            CountDownLatch answered = new CountDownLatch(1);
+            SwingUtilities.invokeLater(() -> {
+                long micros = LAG.since(poked);
+                if (micros >= STALL_MILLIS * 1000) {
+                    STALLS.increment();
+                    EdtStallEvent event = new EdtStallEvent();
+                    event.stall_millis = micros / 1000;
+                    event.commit();
+                }
+                answered.countDown();
+            });
+            try {
+                answered.await(); // Only one poke in the queue at a time, a long stall is one event not many.
+                Thread.sleep(POKE_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
+
+// Flight recorder events, they only cost anything while a recording is running:
+// java -XX:StartFlightRecording=filename=sweeper.jfr -jar covidsweeper.jar
+@Name("COVIDSweeper.Click")
+@Label("Click")
+@Category("COVIDSweeper")
+class ClickEvent extends Event {
+    @Label("Cell")
+    int cell;
+    @Label("Button")
+    int button;
+    @Label("Cells Revealed")
+    int revealed;
+}
+
+@Name("COVIDSweeper.BoardInit")
+@Label("Board Init")
+@Category("COVIDSweeper")
+class BoardInitEvent extends Event {
+    @Label("Rows")
+    int rows;
+    @Label("Columns")
+    int cols;
+    @Label("Mines")
+    int mines;
+    @Label("First Click")
+    boolean first_click; // Mines go down on the first click, the reset before it is only the empty board.
+}
+
+@Name("COVIDSweeper.ScoreIO")
+@Label("Score File I/O")
+@Category("COVIDSweeper")
+class ScoreIOEvent extends Event {
+    @Label("Operation")
+    String operation;
+    @Label("Scores")
+    int scores;
+}
+
+@Name("COVIDSweeper.EdtStall")
+@Label("EDT Stall")
+@Category("COVIDSweeper")
+class EdtStallEvent extends Event {
+    @Label("Stall")
+    @Timespan(Timespan.MILLISECONDS)
+    long stall_millis;
+}
+
+public class main {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("simulate")) {
+            Simulator.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            SweeperServer.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("load")) {
+            LoadGenerator.run(args);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("replay")) {
+            if (args.length > 2 && args[2].equals("--ui")) { // replay <log> --ui [millis per step]
+                new Game(new Replay(ReplayLog.read(Paths.get(args[1]))), args.length > 3 ? Integer.parseInt(args[3]) : 200);
+            } else {
+                Replay.run(args);
+            }
+            return;
+        }
+        Metrics.startDumps();
+        new Game();
+    }
+}